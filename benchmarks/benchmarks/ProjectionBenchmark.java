@@ -0,0 +1,188 @@
+package benchmarks;
+
+import Convex.RnPolyhedron;
+import Matricies.Point;
+import Matricies.PointD;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import main.Main;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks for each of the projection entry points on RnPolyhedron.
+ * Run with "ant bench", which adds the gc profiler so allocation rates are
+ * reported next to throughput and average time.
+ *
+ * The random polyhedra are benchmarked over the dim and faces parameters in
+ * RandomPolyhedra. The square and cube have a fixed number of faces and
+ * dimensions, so FixedPolyhedra benchmarks them without those parameters.
+ * Every source of randomness is seeded in setUp, so each trial sees the same
+ * polyhedron and point.
+ *
+ * @author Dov Neimand
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "-Xmx4G")
+public abstract class ProjectionBenchmark {
+
+    /**
+     * The polyhedron being projected onto.
+     */
+    protected RnPolyhedron poly;
+
+    /**
+     * The point being projected.
+     */
+    protected Point y;
+
+    /**
+     * The number of attempts made to find a non empty random polyhedron.
+     */
+    private static final int MAX_ATTEMPTS = 100;
+
+    /**
+     * Builds the polyhedron and the point being projected.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        PointD.rand.setSeed(1);
+
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            poly = generate();
+            y = PointD.uniformBoundedRand(new PointD(poly.dim()), 10);
+            if (!mayBeEmpty() || isNonEmpty()) return;
+        }
+        throw new IllegalStateException("No non empty polyhedron was generated.");
+    }
+
+    /**
+     * A new polyhedron to project onto.
+     *
+     * @return
+     */
+    protected abstract RnPolyhedron generate();
+
+    /**
+     * May the generated polyhedra be empty? If so, they are generated again
+     * until one is not.
+     *
+     * @return
+     */
+    protected boolean mayBeEmpty() {
+        return false;
+    }
+
+    /**
+     * Random polyhedra may be empty, in which case there is nothing to project
+     * onto.
+     *
+     * @return true if y can be projected onto the polyhedron.
+     */
+    private boolean isNonEmpty() {
+        try {
+            return poly.bruteForceProjection(y) != null;
+        } catch (NoSuchElementException | ArithmeticException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Random polyhedra of every dimension and number of faces.
+     */
+    public static class RandomPolyhedra extends ProjectionBenchmark {
+
+        /**
+         * The n in Rn.
+         */
+        @Param({"2", "3", "5"})
+        public int dim;
+
+        /**
+         * The number of half spaces in the polyhedron.
+         */
+        @Param({"4", "8", "12"})
+        public int faces;
+
+        /**
+         * How the polyhedron is generated.
+         */
+        @Param({"randomNonEmpty", "random"})
+        public String generator;
+
+        @Override
+        protected RnPolyhedron generate() {
+            switch (generator) {
+                case "randomNonEmpty": return RnPolyhedron.randomNonEmpty(faces, 1, dim);
+                case "random": return RnPolyhedron.random(faces, 1, dim);
+                default: throw new IllegalArgumentException("Unknown generator " + generator);
+            }
+        }
+
+        @Override
+        protected boolean mayBeEmpty() {
+            return generator.equals("random");
+        }
+    }
+
+    /**
+     * The square and the cube, whose dimensions and faces are fixed.
+     */
+    public static class FixedPolyhedra extends ProjectionBenchmark {
+
+        /**
+         * Which polyhedron is projected onto.
+         */
+        @Param({"square", "cube"})
+        public String generator;
+
+        @Override
+        protected RnPolyhedron generate() {
+            switch (generator) {
+                case "square": return Main.square();
+                case "cube": return Main.Cube();
+                default: throw new IllegalArgumentException("Unknown generator " + generator);
+            }
+        }
+    }
+
+    @Benchmark
+    public Point proj() {
+        return poly.proj(y);
+    }
+
+    @Benchmark
+    public Point projCoupRleic() {
+        return poly.projCoupRleic(y);
+    }
+
+    @Benchmark
+    public Point projCoupRliecOrderedHalfSpaces() {
+        return poly.projCoupRliecOrderedHalfSpaces(y);
+    }
+
+    @Benchmark
+    public Point projCoupRliecPointMethod() {
+        return poly.projCoupRliecPointMethod(y);
+    }
+
+    @Benchmark
+    public Point bruteForceProjection() {
+        return poly.bruteForceProjection(y);
+    }
+
+}
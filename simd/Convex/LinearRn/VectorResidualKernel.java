@@ -0,0 +1,37 @@
+package Convex.LinearRn;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * A residual kernel that uses the incubating vector API to take inner products
+ * several lanes at a time. This is compiled separately, and only on a JDK that
+ * has the vector API. Get it with ResidualKernel.get().
+ *
+ * @author Dov Neimand
+ */
+class VectorResidualKernel extends ResidualKernel {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    protected double dot(double[] normals, int offset, double[] x, int dim) {
+        int j = 0, bound = SPECIES.loopBound(dim);
+        double ip = 0;
+        if (bound > 0) {
+            DoubleVector sum = DoubleVector.zero(SPECIES);
+            for (; j < bound; j += SPECIES.length())
+                sum = DoubleVector.fromArray(SPECIES, normals, offset + j)
+                        .fma(DoubleVector.fromArray(SPECIES, x, j), sum);
+            ip = sum.reduceLanes(VectorOperators.ADD);
+        }
+        for (; j < dim; j++) ip += normals[offset + j] * x[j];
+        return ip;
+    }
+
+    @Override
+    public boolean isVectorized() {
+        return true;
+    }
+}
@@ -36,8 +36,6 @@ public abstract class ASKey {
         if (this == obj) return true;
         if (obj == null) return false;
         if (!(obj instanceof ASKey)) return false;
-        if (obj instanceof ASKeyPCo) return equals((ASKeyPCo) obj);
-        
         return equals((ASKey) obj);
     }
 
@@ -51,18 +49,58 @@ public abstract class ASKey {
         return hashCode == ask.hashCode;
     }
 
-
-    public abstract boolean equals(ASKeyPCo askaco);
-
     @Override
     public String toString() {
         return "" + hashCode;
     }
     
     
+    /**
+     * The normals and b's of planes are rounded to multiples of this before
+     * they're hashed, so planes found by different computations get the same
+     * key.
+     */
+    public static final double KEY_TOLERANCE = 1e-10;
+
+    /**
+     * The hash code of a plane. The bits of the normal's quantized hash code
+     * and b are mixed so that planes summed together to make the hash code of
+     * an affine space or cone spread evenly over the buckets of a hash map.
+     *
+     * @param <Vec>
+     * @param normal the normal of the plane.
+     * @param b the plane is normal dot x = b.
+     * @return
+     */
     public static<Vec extends Vector<Vec>> int hashCodeGenerator(Vec normal, double b){
-        return normal.hashCode() >> Double.hashCode(b);
+        return mix(31 * normal.quantizedHashCode(KEY_TOLERANCE) + Long.hashCode(Math.round(b / KEY_TOLERANCE)));
+    }
+    
+    /**
+     * Scrambles the bits of a hash code so that every input bit affects every
+     * output bit. This is the finalizer of MurmurHash3.
+     *
+     * @param h
+     * @return
+     */
+    public static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
     }
+    
+    /**
+     * The hash code of an affine space. It is the sum of the hash codes of its
+     * planes, so it does not depend on the order of the planes.
+     *
+     * @param <Vec>
+     * @param normals the normals of the planes.
+     * @param b the planes are normals[i] dot x = b[i].
+     * @return
+     */
     public static<Vec extends Vector<Vec>> int hashCodeGenerator(Vec[] normals, Point b){
         int hashCode = 0;
         for(int i = 0; i < normals.length; i++) hashCode += hashCodeGenerator(normals[i], b.get(i));
@@ -0,0 +1,182 @@
+package Convex.ASKeys;
+
+import java.util.Arrays;
+
+/**
+ * A key for a polyhedral cone made from the indices of its half spaces in the
+ * polyhedron being optimized over. Two cones made from the same faces have
+ * equal keys no matter the order their half spaces are stored in.
+ *
+ * The faces with indices under 64 are kept in a single long so that the key of
+ * an immediate supercone can be found in constant time. Faces with higher
+ * indices are kept in an array of longs.
+ *
+ * @author Dov Neimand
+ */
+public final class FaceKey {
+
+    /**
+     * The faces with indices 0 through 63. Bit i is set if face i is in the
+     * cone.
+     */
+    private final long bits;
+
+    /**
+     * The faces with indices 64 and up. Bit i of word j is set if face
+     * 64(j + 1) + i is in the cone. This is null if there are no such faces,
+     * and never ends with a word of 0.
+     */
+    private final long[] high;
+
+    private final int hashCode;
+
+    /**
+     * The key of the entire space, a cone with no faces.
+     */
+    public static final FaceKey EMPTY = new FaceKey(0, null);
+
+    /**
+     * The constructor
+     *
+     * @param bits the faces with indices under 64.
+     * @param high the faces with indices 64 and up, trimmed of trailing zero
+     * words.
+     */
+    private FaceKey(long bits, long[] high) {
+        this.bits = bits;
+        this.high = high;
+        long h = mix(bits);
+        if (high != null)
+            for (long word : high) h = h * 31 + mix(word);
+        hashCode = (int) (h ^ (h >>> 32));
+    }
+
+    /**
+     * The key for the cone made from the given faces.
+     *
+     * @param faces the indices of the faces.
+     * @return
+     */
+    public static FaceKey of(int... faces) {
+        FaceKey key = EMPTY;
+        for (int face : faces) key = key.with(face);
+        return key;
+    }
+
+    /**
+     * Scrambles the bits of a word so that keys that differ by a few faces
+     * land in different buckets. This is the finalizer of MurmurHash3.
+     *
+     * @param x
+     * @return
+     */
+    private static long mix(long x) {
+        x ^= x >>> 33;
+        x *= 0xff51afd7ed558ccdL;
+        x ^= x >>> 33;
+        x *= 0xc4ceb9fe1a85ec53L;
+        x ^= x >>> 33;
+        return x;
+    }
+
+    /**
+     * The word of high that holds the given face.
+     *
+     * @param face an index of 64 or more.
+     * @return
+     */
+    private static int word(int face) {
+        return (face >>> 6) - 1;
+    }
+
+    /**
+     * Removes trailing words of 0.
+     *
+     * @param words
+     * @return null if all the words are 0.
+     */
+    private static long[] trim(long[] words) {
+        int length = words.length;
+        while (length > 0 && words[length - 1] == 0) length--;
+        if (length == 0) return null;
+        return length == words.length ? words : Arrays.copyOf(words, length);
+    }
+
+    /**
+     * The key of the cone with the given face added.
+     *
+     * @param face the index of the face being added.
+     * @return
+     */
+    public FaceKey with(int face) {
+        if (face < 64) return new FaceKey(bits | (1L << face), high);
+
+        int w = word(face);
+        long[] words = high == null ? new long[w + 1]
+                : Arrays.copyOf(high, Math.max(high.length, w + 1));
+        words[w] |= 1L << face;
+        return new FaceKey(bits, words);
+    }
+
+    /**
+     * The key of the immediate supercone without the given face.
+     *
+     * @param face the index of the face being removed.
+     * @return
+     */
+    public FaceKey without(int face) {
+        if (face < 64) return new FaceKey(bits & ~(1L << face), high);
+
+        int w = word(face);
+        if (high == null || w >= high.length) return this;
+        long[] words = high.clone();
+        words[w] &= ~(1L << face);
+        return new FaceKey(bits, trim(words));
+    }
+
+    /**
+     * Is the given face one of the faces of the cone?
+     *
+     * @param face
+     * @return
+     */
+    public boolean contains(int face) {
+        if (face < 64) return (bits & (1L << face)) != 0;
+        int w = word(face);
+        return high != null && w < high.length && (high[w] & (1L << face)) != 0;
+    }
+
+    /**
+     * The number of faces, which is the codimension of the cone.
+     *
+     * @return
+     */
+    public int size() {
+        int size = Long.bitCount(bits);
+        if (high != null)
+            for (long word : high) size += Long.bitCount(word);
+        return size;
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof FaceKey)) return false;
+        FaceKey other = (FaceKey) obj;
+        return bits == other.bits && hashCode == other.hashCode
+                && Arrays.equals(high, other.high);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < 64 * (high == null ? 1 : high.length + 1); i++)
+            if (contains(i)) sb.append(sb.length() == 1 ? "" : ", ").append(i);
+        return sb.append("}").toString();
+    }
+}
@@ -0,0 +1,359 @@
+package Convex.LinearRn;
+
+import Hilbert.Plane;
+import Matricies.Point;
+import Matricies.PointD;
+import Matricies.Scratch;
+import java.util.Arrays;
+
+/**
+ * The projection onto the affine space N x = b found from the k x k Gram
+ * matrix of the normals instead of an n x n projection matrix:
+ * proj(x) = x - N^T (N N^T)^-1 (N x - b). The Cholesky factor of N N^T is
+ * computed once, so a projection is O(n*k) time and the function is O(n*k)
+ * memory, where k is the codimension.
+ *
+ * The projection onto the intersection with one more plane is found by adding
+ * a row to the Cholesky factor, which is O(n*k) time. The rows of the normals
+ * and of the factor are shared with the projection it was found from.
+ *
+ * @author Dov Neimand
+ */
+public class GramProjection extends ProjectionFunction {
+
+    /**
+     * A pivot of the Cholesky factor smaller than this, relative to the
+     * square of the magnitude of its normal, means the normals are dependent.
+     */
+    public static final double DEPENDENCE_TOLERANCE = 1e-12;
+
+    /**
+     * The rows of N.
+     */
+    private final Rows normals;
+
+    private final double[] b;
+
+    /**
+     * The lower triangular Cholesky factor of N N^T. Row i has i + 1
+     * elements.
+     */
+    private final double[][] chol;
+
+    /**
+     * Is the affine space empty? This happens when a plane is concatenated
+     * whose normal depends on the others but whose b does not.
+     */
+    private final boolean empty;
+
+    /**
+     * Holds N x - b while x is projected.
+     */
+    private static final Scratch scratch = new Scratch();
+
+    /**
+     * The constructor.
+     *
+     * @param normals the rows of N.
+     * @param b
+     * @throws DependentNormals if the normals are not linearly independent.
+     */
+    public GramProjection(Point[] normals, Point b) {
+        this(new DenseRows(normals), b.asDense().array().clone());
+    }
+
+    /**
+     * A constructor for subclasses that keep the normals another way.
+     *
+     * @param normals the rows of N.
+     * @param b
+     * @throws DependentNormals if the normals are not linearly independent.
+     */
+    GramProjection(Rows normals, double[] b) {
+        this.normals = normals;
+        this.b = b;
+        chol = new double[normals.size()][];
+        for (int i = 0; i < chol.length; i++) {
+            chol[i] = cholRow(normals, chol, i);
+            if (!pivot(chol[i], normals.dot(i, i))) throw new DependentNormals();
+        }
+        empty = false;
+    }
+
+    private GramProjection(Rows normals, double[] b, double[][] chol, boolean empty) {
+        this.normals = normals;
+        this.b = b;
+        this.chol = chol;
+        this.empty = empty;
+    }
+
+    /**
+     * The projection onto the whole space, that planes can be concatenated
+     * to. The normals are kept dense.
+     *
+     * @return
+     */
+    public static GramProjection allSpace() {
+        return new GramProjection(new DenseRows(new Point[0]), new double[0]);
+    }
+
+    /**
+     * Row i of the Cholesky factor, found from the rows before it. The last
+     * element is the square of the pivot, which has yet to be checked.
+     *
+     * @param normals
+     * @param chol the first i rows of the Cholesky factor.
+     * @param i
+     * @return
+     */
+    private static double[] cholRow(Rows normals, double[][] chol, int i) {
+        double[] row = new double[i + 1];
+        double pivot = normals.dot(i, i);
+        for (int j = 0; j < i; j++) {
+            double sum = normals.dot(i, j);
+            for (int k = 0; k < j; k++) sum -= row[k] * chol[j][k];
+            row[j] = sum / chol[j][j];
+            pivot -= row[j] * row[j];
+        }
+        row[i] = pivot;
+        return row;
+    }
+
+    /**
+     * Takes the square root of the last element of the row if the normal it
+     * belongs to is independent of the normals before it.
+     *
+     * @param row a row from cholRow.
+     * @param normSq the square of the magnitude of the normal.
+     * @return false if the normal is in the span of the normals before it.
+     */
+    private static boolean pivot(double[] row, double normSq) {
+        int i = row.length - 1;
+        if (row[i] <= DEPENDENCE_TOLERANCE * normSq) return false;
+        row[i] = Math.sqrt(row[i]);
+        return true;
+    }
+
+    /**
+     * The projection onto the intersection of this affine space and the
+     * plane. If the normal of the plane is in the span of the normals, this
+     * is returned when the plane contains the affine space, and an empty
+     * projection when it misses it.
+     *
+     * @param plane
+     * @return
+     */
+    public GramProjection concat(Plane<Point> plane) {
+        if (empty) return this;
+
+        int k = chol.length;
+        Rows concatNormals = normals.concat(plane.normal());
+        double normSq = concatNormals.dot(k, k);
+        double[] row = cholRow(concatNormals, chol, k);
+
+        if (pivot(row, normSq)) {
+            double[][] concatChol = Arrays.copyOf(chol, k + 1);
+            concatChol[k] = row;
+            double[] concatB = Arrays.copyOf(b, k + 1);
+            concatB[k] = plane.b();
+            return new GramProjection(concatNormals, concatB, concatChol, false);
+        }
+
+        //The normal is N^T w where L L^T w = N normal, and L^T w is the row.
+        double[] w = Arrays.copyOf(row, k);
+        backSolve(w);
+        double beta = plane.b();
+        for (int i = 0; i < k; i++) beta -= b[i] * w[i];
+        if (Math.abs(beta) <= plane.tolerance * Math.max(Math.sqrt(normSq), 1)) return this;
+        return new GramProjection(normals, b, chol, true);
+    }
+
+    /**
+     * Solves L L^T z = r in place.
+     *
+     * @param r overwritten with z.
+     */
+    private void cholSolve(double[] r) {
+        for (int i = 0; i < chol.length; i++) {
+            for (int k = 0; k < i; k++) r[i] -= chol[i][k] * r[k];
+            r[i] /= chol[i][i];
+        }
+        backSolve(r);
+    }
+
+    /**
+     * Solves L^T z = r in place.
+     *
+     * @param r overwritten with z.
+     */
+    private void backSolve(double[] r) {
+        for (int i = chol.length - 1; i >= 0; i--) {
+            for (int k = i + 1; k < chol.length; k++) r[i] -= chol[k][i] * r[k];
+            r[i] /= chol[i][i];
+        }
+    }
+
+    /**
+     * The projection of x onto the affine space.
+     *
+     * @param x
+     * @return null if the affine space is empty.
+     */
+    @Override
+    public Point apply(Point x) {
+        if (empty) return null;
+        int coDim = chol.length;
+        double[] xArray = x.array(), z = scratch.array(coDim);
+        for (int i = 0; i < coDim; i++) z[i] = normals.dot(i, xArray) - b[i];
+        cholSolve(z);
+
+        double[] proj = xArray.clone();
+        for (int i = 0; i < coDim; i++) normals.subtract(i, z[i], proj);
+        return new PointD(proj);
+    }
+
+    /**
+     * Is the affine space empty?
+     *
+     * @return
+     */
+    public boolean isEmpty() {
+        return empty;
+    }
+
+    /**
+     * The number of independent normals.
+     *
+     * @return
+     */
+    public int coDim() {
+        return chol.length;
+    }
+
+    @Override
+    public long bytes() {
+        long bytes = 48 + 8L * b.length + normals.bytes();
+        for (double[] row : chol) bytes += 16 + 8L * row.length;
+        return bytes;
+    }
+
+    /**
+     * The rows of N. Concatenating a row leaves the rows before it shared.
+     */
+    static abstract class Rows {
+
+        /**
+         * The number of rows.
+         *
+         * @return
+         */
+        abstract int size();
+
+        /**
+         * The inner product of row i with the array x.
+         *
+         * @param i
+         * @param x
+         * @return
+         */
+        abstract double dot(int i, double[] x);
+
+        /**
+         * The inner product of rows i and j.
+         *
+         * @param i
+         * @param j
+         * @return
+         */
+        abstract double dot(int i, int j);
+
+        /**
+         * x -= z * row i
+         *
+         * @param i
+         * @param z
+         * @param x
+         */
+        abstract void subtract(int i, double z, double[] x);
+
+        /**
+         * These rows with the normal after them.
+         *
+         * @param normal
+         * @return
+         */
+        abstract Rows concat(Point normal);
+
+        /**
+         * An estimate of the memory used by the rows.
+         *
+         * @return
+         */
+        abstract long bytes();
+    }
+
+    /**
+     * Rows that keep every element.
+     */
+    private static class DenseRows extends Rows {
+
+        private final double[][] rows;
+
+        private DenseRows(Point[] normals) {
+            this(new double[normals.length][]);
+            for (int i = 0; i < normals.length; i++)
+                rows[i] = normals[i].asDense().array().clone();
+        }
+
+        private DenseRows(double[][] rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        int size() {
+            return rows.length;
+        }
+
+        @Override
+        double dot(int i, double[] x) {
+            double dot = 0;
+            for (int j = 0; j < x.length; j++) dot += rows[i][j] * x[j];
+            return dot;
+        }
+
+        @Override
+        double dot(int i, int j) {
+            return dot(i, rows[j]);
+        }
+
+        @Override
+        void subtract(int i, double z, double[] x) {
+            for (int j = 0; j < x.length; j++) x[j] -= z * rows[i][j];
+        }
+
+        @Override
+        Rows concat(Point normal) {
+            double[][] concat = Arrays.copyOf(rows, rows.length + 1);
+            concat[rows.length] = normal.asDense().array().clone();
+            return new DenseRows(concat);
+        }
+
+        @Override
+        long bytes() {
+            long bytes = 16;
+            for (double[] row : rows) bytes += 16 + 8L * row.length;
+            return bytes;
+        }
+    }
+
+    /**
+     * Thrown when the normals are dependent, so that the Gram matrix can not
+     * be factored. The projection matrix should be used instead.
+     */
+    public static class DependentNormals extends RuntimeException {
+
+        public DependentNormals() {
+            super("The normals are linearly dependent.");
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package Convex.LinearRn;
+
+import Convex.ASKeys.FaceKey;
+import Hilbert.IncrementalArgMin;
+import Hilbert.Plane;
+import Matricies.Point;
+import java.util.function.Supplier;
+
+/**
+ * The projection of a point onto an affine space that is built up one plane
+ * at a time. The affine space is kept as a GramProjection, so adding a plane
+ * is one more row of its Cholesky factor, O(n*k), and projecting is O(n*k),
+ * where k is the codimension. Building the projection matrix from scratch
+ * with a pseudo inverse is O(n^3).
+ *
+ * When many points are projected onto the faces of one polyhedron, the affine
+ * spaces can be saved by the faces that intersect to make them, so that they
+ * are found once for all the points. Then an IncrementalProjection only keeps
+ * the key of its affine space and how to find it again if it's been evicted.
+ *
+ * @author Dov Neimand
+ */
+public class IncrementalProjection implements IncrementalArgMin<Point> {
+
+    /**
+     * Where the affine spaces made from the faces of a polyhedron are saved.
+     */
+    public interface Faces {
+
+        /**
+         * The projection onto the whole space, that the faces are
+         * concatenated to.
+         *
+         * @return
+         */
+        public GramProjection allSpace();
+
+        /**
+         * The key of the intersection of an affine space and a plane.
+         *
+         * @param key the key of the affine space.
+         * @param plane
+         * @return null if the plane is not the boundary of a face.
+         */
+        public FaceKey with(FaceKey key, Plane<Point> plane);
+
+        /**
+         * The saved affine space with the given key.
+         *
+         * @param key
+         * @param concat finds the affine space if it's not saved.
+         * @return
+         */
+        public GramProjection get(FaceKey key, Supplier<GramProjection> concat);
+    }
+
+    /**
+     * The point being projected.
+     */
+    private final Point y;
+
+    /**
+     * The projection onto the affine space, or null if it's saved in faces.
+     */
+    private final GramProjection space;
+
+    /**
+     * Where the affine space is saved, or null if it's kept here.
+     */
+    private final Faces faces;
+
+    /**
+     * The key of the affine space in faces.
+     */
+    private final FaceKey key;
+
+    /**
+     * The affine space is the intersection of the parent's and the plane.
+     */
+    private final IncrementalProjection parent;
+
+    private final Plane<Point> plane;
+
+    /**
+     * The projection of y onto the whole space.
+     *
+     * @param y the point being projected.
+     */
+    public IncrementalProjection(Point y) {
+        this(y, GramProjection.allSpace());
+    }
+
+    /**
+     * The projection of y onto the whole space. The affine spaces made from
+     * the faces are found from, and saved in, faces.
+     *
+     * @param y the point being projected.
+     * @param faces
+     */
+    public IncrementalProjection(Point y, Faces faces) {
+        this(y, faces.allSpace(), faces, FaceKey.EMPTY, null, null);
+    }
+
+    private IncrementalProjection(Point y, GramProjection space) {
+        this(y, space, null, null, null, null);
+    }
+
+    private IncrementalProjection(Point y, GramProjection space, Faces faces, FaceKey key, IncrementalProjection parent, Plane<Point> plane) {
+        this.y = y;
+        this.space = space;
+        this.faces = faces;
+        this.key = key;
+        this.parent = parent;
+        this.plane = plane;
+    }
+
+    /**
+     * The projection onto the affine space.
+     *
+     * @return
+     */
+    private GramProjection space() {
+        if (space != null) return space;
+        return faces.get(key, () -> parent.space().concat(plane));
+    }
+
+    /**
+     * The projection onto the intersection of this affine space and the
+     * plane.
+     *
+     * @param plane
+     * @return this if the plane contains the affine space.
+     */
+    @Override
+    public IncrementalProjection concat(Plane<Point> plane) {
+        if (faces != null) {
+            FaceKey concatKey = faces.with(key, plane);
+            if (concatKey != null)
+                return new IncrementalProjection(y, null, faces, concatKey, this, plane);
+        }
+        GramProjection current = space(), concat = current.concat(plane);
+        return concat == current ? this : new IncrementalProjection(y, concat);
+    }
+
+    /**
+     * The projection of y onto the affine space.
+     *
+     * @return null if the affine space is empty.
+     */
+    @Override
+    public Point argMin() {
+        return space().apply(y);
+    }
+
+    /**
+     * The codimension of the affine space.
+     *
+     * @return
+     */
+    public int coDim() {
+        return space().coDim();
+    }
+}
@@ -0,0 +1,241 @@
+package Convex.LinearRn;
+
+import Matricies.Point;
+import Matricies.PointD;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * Finds a point in the polyhedron normals * x &lt;= b, or proves there is none,
+ * with phase one of the simplex method. The rows are scaled to unit normals
+ * and the linear program
+ *
+ * minimize t subject to normals * x - t &lt;= b, t &gt;= 0
+ *
+ * is solved with x split into its positive and negative parts. Moving the row
+ * with the most negative b into the basis gives a feasible start. The
+ * polyhedron is empty if the minimum t is positive, and then the duals of the
+ * rows are a certificate: nonnegative multipliers whose combination of the
+ * normals is 0 and whose combination of the b's is negative.
+ *
+ * @author Dov Neimand
+ */
+public class PhaseOneSimplex {
+
+    /**
+     * Reduced costs and pivots smaller than this are taken to be 0.
+     */
+    public static final double PIVOT_TOLERANCE = 1e-11;
+
+    /**
+     * After this many pivots in a row that don't decrease t, Bland's rule is
+     * used until one does, so the method can't cycle.
+     */
+    private static final int MAX_DEGENERATE_PIVOTS = 50;
+
+    /**
+     * The rows of the linear program, and the reduced costs in the last row.
+     * The last column is the right hand side.
+     */
+    private final double[][] tableau;
+
+    /**
+     * The variable that is basic in each row.
+     */
+    private final int[] basis;
+
+    /**
+     * The magnitude of each normal, which its row was divided by.
+     */
+    private final double[] scale;
+
+    private final int rows, dim, tCol, cols;
+
+    /**
+     * The most a point may be outside of a half space, over the magnitude of
+     * its normal, and still be counted as in it.
+     */
+    private final double epsilon;
+
+    /**
+     * The constructor
+     *
+     * @param constraints the half spaces of the polyhedron.
+     * @param epsilon how far outside a half space the point may be and still
+     * be counted as in it.
+     */
+    public PhaseOneSimplex(RnConstraintMatrix constraints, double epsilon) {
+        this.epsilon = epsilon;
+        rows = constraints.rows();
+        dim = constraints.dim();
+        tCol = 2 * dim;
+        cols = tCol + 1 + rows;
+        tableau = new double[rows + 1][cols + 1];
+        basis = new int[rows];
+        scale = new double[rows];
+
+        for (int i = 0; i < rows; i++) {
+            scale[i] = Math.sqrt(constraints.normSq(i));
+            double[] row = tableau[i];
+            for (int j = 0; j < dim; j++) {
+                double a = scale[i] == 0 ? 0 : constraints.normal(i, j) / scale[i];
+                row[j] = a;
+                row[dim + j] = -a;
+            }
+            row[tCol] = -1;
+            row[tCol + 1 + i] = 1;
+            row[cols] = scale[i] == 0 ? constraints.b(i) : constraints.b(i) / scale[i];
+            basis[i] = tCol + 1 + i;
+        }
+        tableau[rows][tCol] = 1;
+    }
+
+    /**
+     * Pivots the variable of the given column into the basis at the given
+     * row.
+     *
+     * @param row
+     * @param col
+     */
+    private void pivot(int row, int col) {
+        double[] pivotRow = tableau[row];
+        double p = pivotRow[col];
+        for (int j = 0; j <= cols; j++) pivotRow[j] /= p;
+        for (int i = 0; i <= rows; i++) {
+            if (i == row) continue;
+            double[] r = tableau[i];
+            double factor = r[col];
+            if (factor == 0) continue;
+            for (int j = 0; j <= cols; j++) r[j] -= factor * pivotRow[j];
+            r[col] = 0;
+        }
+        basis[row] = col;
+    }
+
+    /**
+     * The column to enter the basis.
+     *
+     * @param bland use the first column with a negative reduced cost instead
+     * of the most negative.
+     * @return -1 if t is at its minimum.
+     */
+    private int entering(boolean bland) {
+        double[] cost = tableau[rows];
+        int enter = -1;
+        for (int j = 0; j < cols; j++)
+            if (cost[j] < -PIVOT_TOLERANCE && (enter == -1 || cost[j] < cost[enter])) {
+                enter = j;
+                if (bland) break;
+            }
+        return enter;
+    }
+
+    /**
+     * The row to leave the basis, by the ratio test. Ties go to the row whose
+     * basic variable has the least index.
+     *
+     * @param col the entering column.
+     * @return -1 if the column is unbounded, which can't happen since t is
+     * bounded below.
+     */
+    private int leaving(int col) {
+        int leave = -1;
+        double min = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < rows; i++) {
+            double a = tableau[i][col];
+            if (a <= PIVOT_TOLERANCE) continue;
+            double ratio = tableau[i][cols] / a;
+            if (ratio < min || (ratio == min && basis[i] < basis[leave])) {
+                min = ratio;
+                leave = i;
+            }
+        }
+        return leave;
+    }
+
+    /**
+     * The value of the variable of the given column.
+     *
+     * @param col
+     * @return 0 if it isn't basic.
+     */
+    private double value(int col) {
+        for (int i = 0; i < rows; i++)
+            if (basis[i] == col) return tableau[i][cols];
+        return 0;
+    }
+
+    /**
+     * Minimizes t.
+     */
+    private void solve() {
+        int start = 0;
+        for (int i = 1; i < rows; i++)
+            if (tableau[i][cols] < tableau[start][cols]) start = i;
+        if (rows == 0 || tableau[start][cols] >= 0) return;
+        pivot(start, tCol);
+
+        int degenerate = 0;
+        for (int col = entering(false); col != -1; col = entering(degenerate > MAX_DEGENERATE_PIVOTS)) {
+            int row = leaving(col);
+            if (row == -1) break;
+            double t = value(tCol);
+            pivot(row, col);
+            degenerate = value(tCol) < t ? 0 : degenerate + 1;
+        }
+    }
+
+    /**
+     * A point in the polyhedron.
+     *
+     * @return
+     * @throws Infeasible if the polyhedron is empty.
+     */
+    public Point feasiblePoint() {
+        solve();
+        if (value(tCol) > epsilon) throw new Infeasible(certificate());
+        return new PointD(dim, j -> value(j) - value(dim + j));
+    }
+
+    /**
+     * The duals of the rows, the reduced costs of their slack variables,
+     * divided by the magnitudes of their normals so that they multiply the
+     * original half spaces.
+     *
+     * @return
+     */
+    private double[] certificate() {
+        double[] y = new double[rows];
+        for (int i = 0; i < rows; i++) {
+            double dual = Math.max(tableau[rows][tCol + 1 + i], 0);
+            y[i] = scale[i] == 0 ? dual : dual / scale[i];
+        }
+        return y;
+    }
+
+    /**
+     * Thrown when the polyhedron is empty. It carries a Farkas certificate:
+     * nonnegative multipliers y, one for each half space, with y * normals = 0
+     * and y * b &lt; 0. Any x in the polyhedron would have
+     * 0 = y * normals * x &lt;= y * b &lt; 0.
+     */
+    public static class Infeasible extends NoSuchElementException {
+
+        private final double[] certificate;
+
+        public Infeasible(double[] certificate) {
+            super("The polyhedron is empty.");
+            this.certificate = certificate;
+        }
+
+        /**
+         * The multipliers of the half spaces that prove the polyhedron is
+         * empty.
+         *
+         * @return
+         */
+        public double[] certificate() {
+            return Arrays.copyOf(certificate, certificate.length);
+        }
+    }
+}
@@ -1,10 +1,12 @@
 package Convex.LinearRn;
 
 import Hilbert.LinearSpace;
-import Matricies.Matrix;
 import Matricies.MatrixDense;
 import Matricies.Point;
 import Matricies.PointD;
+import Matricies.RankRevealingQR;
+import Matricies.Scratch;
+import java.util.Arrays;
 import java.util.function.Function;
 
 /**
@@ -14,14 +16,20 @@ import java.util.function.Function;
 public class ProjectionFunction implements Function<Point, Point> {
 
     /**
-     * The matrix for projecting onto the linear space.
+     * An orthonormal basis for the span of the normals. The projection of x
+     * is x - B B^T (x - p).
      */
-    private Matrix pm;
+    private MatrixDense basis;
     /**
      * A point in the affine space.
      */
     private Point p;
 
+    /**
+     * Holds x - p and B^T (x - p) while x is projected.
+     */
+    private static final Scratch scratch = new Scratch();
+
     /**
      * A constructor
      * @param ls the linear space underlying the affine space.
@@ -30,21 +38,29 @@ public class ProjectionFunction implements Function<Point, Point> {
      * @param epsilon a small number
      */
     public ProjectionFunction(LinearSpace ls, Point p, double epsilon) {
-        
-        Matrix nullSpaceMatrix = new RnLinearSpace(ls).matrix();
-        Matrix A = RnLinearSpace.colSpaceMatrix(nullSpaceMatrix);
-
-        if (!A.isZero(epsilon) && A.rows() == p.dim()) pm = A.mult(A.pseudoInverse());
-        else{
-            if(A.asDense().rank() == A.asDense().numCols) {
-                if(p == null)p =  new PointD(nullSpaceMatrix.rows());
-                pm = null;
-            }else throw new NoProjFuncExists(ls);
-        }
-        
+        this(new RankRevealingQR(new RnLinearSpace(ls).matrix(), epsilon), p);
+    }
+
+    /**
+     * A constructor that reuses a factorization of the normals.
+     *
+     * @param qr the factorization of the normals of the linear space.
+     * @param p a point in the affine space. Should be left null if the affine
+     * space is a linear space.
+     */
+    public ProjectionFunction(RankRevealingQR qr, Point p) {
+        if (qr.nullity() > 0) basis = qr.rowSpaceBasis();
+        else if (p == null) p = new PointD(qr.dim());
         this.p = p;
     }
 
+    /**
+     * A constructor for projection functions that don't use a projection
+     * matrix. They must override apply.
+     */
+    protected ProjectionFunction() {
+    }
+
     /**
      * A projection function for Rn.
      * @return 
@@ -53,7 +69,7 @@ public class ProjectionFunction implements Function<Point, Point> {
         class ID extends ProjectionFunction{
             
         public ID() {
-            super(null, null, 0);
+            super();
         }
 
         @Override
@@ -66,9 +82,34 @@ public class ProjectionFunction implements Function<Point, Point> {
     }
     @Override
     public Point apply(Point x) {
-        if(pm == null) return p;
-        if(p == null) return pm.mult(x);
-        return p.plus(pm.mult(x.minus(p)));
+        if (basis == null) return p;
+        int n = basis.numRows, rank = basis.numCols;
+        PointD proj = new PointD(x);
+        double[] dif = p == null ? proj.array() : proj.minusInto(p, scratch.point(n)).array(),
+                coef = scratch.array(rank), b = basis.data, out = proj.array();
+
+        Arrays.fill(coef, 0, rank, 0);
+        for (int row = 0; row < n; row++)
+            for (int j = 0; j < rank; j++) coef[j] += b[row * rank + j] * dif[row];
+
+        for (int row = 0; row < n; row++) {
+            double sum = 0;
+            for (int j = 0; j < rank; j++) sum += b[row * rank + j] * coef[j];
+            out[row] -= sum;
+        }
+        return proj.setHash();
+    }
+
+    /**
+     * An estimate of the memory used by this function.
+     *
+     * @return the number of bytes.
+     */
+    public long bytes() {
+        long bytes = 32;
+        if (basis != null) bytes += 8L * basis.numRows * basis.numCols;
+        if (p != null) bytes += 8L * p.dim();
+        return bytes;
     }
 
     /**
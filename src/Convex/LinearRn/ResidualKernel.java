@@ -0,0 +1,118 @@
+package Convex.LinearRn;
+
+/**
+ * Computes normal dot x - b for every row of a packed constraint matrix. This
+ * class computes them with scalar loops. If the JDK has the incubating vector
+ * API and it was compiled in, get() returns a subclass that uses SIMD
+ * instructions.
+ *
+ * The SIMD kernel is only loaded when the JVM is started with
+ * --add-modules jdk.incubator.vector. It can be turned off with
+ * -Dconvex.simd=false.
+ *
+ * @author Dov Neimand
+ */
+public class ResidualKernel {
+
+    /**
+     * The fastest kernel available.
+     */
+    private static final ResidualKernel kernel = load();
+
+    /**
+     * The fastest kernel available.
+     *
+     * @return
+     */
+    public static ResidualKernel get() {
+        return kernel;
+    }
+
+    /**
+     * Loads the SIMD kernel if it can be, otherwise the scalar one.
+     *
+     * @return
+     */
+    private static ResidualKernel load() {
+        if (!Boolean.parseBoolean(System.getProperty("convex.simd", "true")))
+            return new ResidualKernel();
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty())
+            return new ResidualKernel();
+        try {
+            return (ResidualKernel) Class.forName("Convex.LinearRn.VectorResidualKernel")
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError ex) {
+            return new ResidualKernel();
+        }
+    }
+
+    /**
+     * The inner product of a row of normals with x.
+     *
+     * @param normals the normals, row major.
+     * @param offset the index of the first element of the row.
+     * @param x the point.
+     * @param dim the length of the row and of x.
+     * @return
+     */
+    protected double dot(double[] normals, int offset, double[] x, int dim) {
+        double ip = 0;
+        for (int j = 0; j < dim; j++) ip += normals[offset + j] * x[j];
+        return ip;
+    }
+
+    /**
+     * normals_i dot x - b_i.
+     *
+     * @param normals the normals, row major.
+     * @param b the right hand side.
+     * @param x the point.
+     * @param dim the length of each row.
+     * @param i the row.
+     * @return
+     */
+    public double residual(double[] normals, double[] b, double[] x, int dim, int i) {
+        return dot(normals, i * dim, x, dim) - b[i];
+    }
+
+    /**
+     * normals * x - b.
+     *
+     * @param normals the normals, row major.
+     * @param b the right hand side.
+     * @param x the point.
+     * @param dim the length of each row.
+     * @param into where the residuals are written, with one element per row.
+     * @return into
+     */
+    public double[] residuals(double[] normals, double[] b, double[] x, int dim, double[] into) {
+        for (int i = 0; i < b.length; i++) into[i] = dot(normals, i * dim, x, dim) - b[i];
+        return into;
+    }
+
+    /**
+     * Are all the residuals at most epsilon? This stops at the first row that
+     * isn't.
+     *
+     * @param normals the normals, row major.
+     * @param b the right hand side.
+     * @param x the point.
+     * @param dim the length of each row.
+     * @param epsilon
+     * @return
+     */
+    public boolean allWithin(double[] normals, double[] b, double[] x, int dim, double epsilon) {
+        for (int i = 0; i < b.length; i++)
+            if (dot(normals, i * dim, x, dim) - b[i] > epsilon) return false;
+        return true;
+    }
+
+    /**
+     * Is this kernel using SIMD instructions?
+     *
+     * @return
+     */
+    public boolean isVectorized() {
+        return false;
+    }
+}
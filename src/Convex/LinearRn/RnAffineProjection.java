@@ -1,8 +1,11 @@
 package Convex.LinearRn;
 
 import Hilbert.AffineSpace;
+import Hilbert.IncrementalArgMin;
 import Hilbert.StrictlyConvexFunction;
 import Matricies.Point;
+import Matricies.PointD;
+import java.util.function.Function;
 
 /**
  * A projection function that can either be constructed as a function of
@@ -23,6 +26,20 @@ public class RnAffineProjection implements StrictlyConvexFunction<Point>{
      */
     private Point project;
 
+    /**
+     * Converts the affine spaces passed to argMinAffine into RnAffineSpaces.
+     * A caller that projects many points onto the same affine spaces can pass
+     * in a function that returns the same RnAffineSpace each time, so that the
+     * projection functions are only computed once.
+     */
+    private Function<AffineSpace<Point>, RnAffineSpace> affineSpaces = RnAffineSpace::new;
+
+    /**
+     * Where the affine spaces found by incrementalArgMin are saved, or null
+     * if they are not saved.
+     */
+    private IncrementalProjection.Faces faces;
+
     /**
      * The constructor.  The point being projected is constant.  ArgMinAffine 
      * can be called on any number of spaces.  Apply should not be called.
@@ -32,6 +49,30 @@ public class RnAffineProjection implements StrictlyConvexFunction<Point>{
         this.project = project;
     }
 
+    /**
+     * The constructor. The point being projected is constant.
+     * @param project the point being projected.
+     * @param affineSpaces a function that finds the RnAffineSpace for each of
+     * the affine spaces argMinAffine is called on.
+     */
+    public RnAffineProjection(Point project, Function<AffineSpace<Point>, RnAffineSpace> affineSpaces) {
+        this(project);
+        this.affineSpaces = affineSpaces;
+    }
+
+    /**
+     * The constructor. The point being projected is constant.
+     * @param project the point being projected.
+     * @param affineSpaces a function that finds the RnAffineSpace for each of
+     * the affine spaces argMinAffine is called on.
+     * @param faces where the affine spaces found by incrementalArgMin are
+     * saved.
+     */
+    public RnAffineProjection(Point project, Function<AffineSpace<Point>, RnAffineSpace> affineSpaces, IncrementalProjection.Faces faces) {
+        this(project, affineSpaces);
+        this.faces = faces;
+    }
+
     /**
      * The affine space being projected onto is set.  The methods of this
      * function may be called on points.
@@ -52,14 +93,15 @@ public class RnAffineProjection implements StrictlyConvexFunction<Point>{
     }
 
     /**
-     * The distance from the given point to the affine space being projected onto.
+     * The distance from the given point to the affine space being projected
+     * onto, or to the point being projected.
      * @param t
      * @return 
      */
     @Override
     public Double apply(Point t) {
         if(projectOnto != null) return projectOnto.d(t);
-        return Double.valueOf(0);
+        return project.d(t);
     }
     
     /**
@@ -72,13 +114,65 @@ public class RnAffineProjection implements StrictlyConvexFunction<Point>{
         throw new RuntimeException("No affine space to project onto has been set.");
     }
 
+    /**
+     * The projection of the point being projected onto the plane
+     * normal dot x = b.
+     *
+     * @param normal
+     * @param b
+     * @return null if the normal is 0.
+     */
+    private Point projOntoPlane(Point normal, double b) {
+        int dim = project.dim();
+        double ip = 0, normSq = 0;
+        for (int i = 0; i < dim; i++) {
+            double n = normal.get(i);
+            ip += n * project.get(i);
+            normSq += n * n;
+        }
+        if (normSq == 0) return null;
+        double scale = (ip - b) / normSq;
+        return new PointD(dim, i -> project.get(i) - scale * normal.get(i));
+    }
+
     @Override
     public Point argMinAffine(AffineSpace<Point> A) {
-        return argMinAffine(new RnAffineSpace(A));
+        if (project != null && !A.isAllSpace() && A.b.dim() == 1)
+            return projOntoPlane(A.nullMatrixRows()[0], A.b.get(0));
+        try {
+            return argMinAffine(affineSpaces.apply(A));
+        } catch (ProjectionFunction.NoProjFuncExists ex) {
+            return null;
+        }
     }
 
+    /**
+     * The projection of the point being projected, restricted one plane at a
+     * time.
+     *
+     * @return null if no point to be projected has been set.
+     */
+    @Override
+    public IncrementalArgMin<Point> incrementalArgMin() {
+        if (project == null) return null;
+        return faces == null ? new IncrementalProjection(project) : new IncrementalProjection(project, faces);
+    }
+
+    /**
+     * The distance from the point being projected to the affine space. The
+     * distance to a plane, normal dot x = b, is |normal dot y - b| / |normal|,
+     * found without projecting, since the half spaces are sorted by it.
+     *
+     * @param A
+     * @return
+     */
     @Override
     public double min(AffineSpace<Point> A) {
+        if (project != null && !A.isAllSpace() && A.b.dim() == 1) {
+            Point normal = A.nullMatrixRows()[0];
+            double normSq = normal.dot(normal);
+            if (normSq != 0) return Math.abs(normal.dot(project) - A.b.get(0)) / Math.sqrt(normSq);
+        }
         return project.d(argMinAffine(A));
     }
     
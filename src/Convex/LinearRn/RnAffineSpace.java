@@ -6,7 +6,7 @@ import Hilbert.AffineSpace;
 import Hilbert.HalfSpace;
 import Hilbert.LinearSpace;
 import Matricies.Matrix;
-import Matricies.ReducedRowEchelonDense;
+import Matricies.RankRevealingQR;
 import Matricies.Point;
 import Matricies.PointD;
 import Matricies.PointSparse;
@@ -128,30 +128,26 @@ public class RnAffineSpace extends AffineSpace<Point> implements ConvexSet<Point
 
         if (p != null) return p;
 
-        ReducedRowEchelonDense rre = new ReducedRowEchelonDense(nullMatrix());
-
-        if (rre.noFreeVariable())
-            return p = nullMatrix().solve(b);
+        return p = qr().solve(b);
+    }
 
-        Matrix append = Matrix.fromRows(
-                rre.getFreeVariables()
-                        .map(i ->  new PointD(rre.numCols, i, 1))
-                        .toArray(PointD[]::new)
-        );
+    /**
+     * The rank revealing factorization of the normals, shared by p(),
+     * subSpaceDim() and the projection function. The P-cones of the solvers
+     * don't use it; they add their faces to a GramProjection one at a time,
+     * which finds dependent normals as they're added.
+     */
+    private volatile RankRevealingQR qr = null;
 
-        Point b2 = b.concat(new PointD(append.rows()));
-        try {
-            return p = nullMatrix().rowConcat(append).solve(b2);
-
-        } catch (Exception ex) {
-            System.out.println("Convex.Linear.AffineSpace.p()");
-            System.out.println(nullMatrix().rowConcat(append));
-            System.out.println("b2 = " + b2 +"\n");
-            System.out.println("this = " + this + "\n");
-            System.out.println("rre = \n" + rre);
-            throw ex;
-//            throw new NoSuchElementException("This affine space is empty." + this);
-        }
+    /**
+     * The rank revealing factorization of the normals. It is computed the
+     * first time it's needed.
+     *
+     * @return
+     */
+    private RankRevealingQR qr() {
+        if (qr == null) qr = new RankRevealingQR(nullMatrix(), tolerance);
+        return qr;
     }
 
     /**
@@ -164,13 +160,70 @@ public class RnAffineSpace extends AffineSpace<Point> implements ConvexSet<Point
     @Override
     public Point proj(Point x) {
         if (isAllSpace()) return x;
+        return getProjFunc().apply(x);
+    }
+
+    /**
+     * How the projection function of an affine space is computed.
+     */
+    public enum ProjectionMode {
+        /**
+         * From the Cholesky factor of the k x k Gram matrix of the normals.
+         * This is O(n*k) memory and time per projection, or O(nnz + k^2) if
+         * the normals should be sparse. If the normals are dependent the
+         * rank revealing factorization is used instead.
+         */
+        GRAM,
+        /**
+         * From an orthonormal basis of the span of the normals, found with a
+         * rank revealing QR factorization. This is O(n*rank) memory and time
+         * per projection, and works when the normals are dependent.
+         */
+        MATRIX
+    }
+
+    /**
+     * How the projection function is computed.
+     */
+    private ProjectionMode projectionMode = ProjectionMode.GRAM;
+
+    /**
+     * Sets how the projection function is computed. A saved projection
+     * function is thrown out if it was computed another way.
+     *
+     * @param projectionMode
+     * @return this
+     */
+    public RnAffineSpace setProjectionMode(ProjectionMode projectionMode) {
+        if (this.projectionMode != projectionMode) projFunc = null;
+        this.projectionMode = projectionMode;
+        return this;
+    }
+
+    /**
+     * The function that projects onto this space. It is computed the first
+     * time it's needed and saved for future use.
+     *
+     * @return the projection function for this space.
+     */
+    public ProjectionFunction getProjFunc() {
+        if (hasProjFunc()) return projFunc;
+        if (projectionMode == ProjectionMode.GRAM) {
+            Point[] normals = nullMatrixRows();
+            try {
+                Point onB = b != null ? b : new PointD(normals.length, i -> normals[i].dot(p()));
+                return projFunc = SparseGramProjection.shouldBeSparse(normals)
+                        ? new SparseGramProjection(normals, onB)
+                        : new GramProjection(normals, onB);
+            } catch (GramProjection.DependentNormals dn) {
+                //The rank revealing factorization is used instead.
+            }
+        }
         try {
-            if (!hasProjFunc())
-                projFunc = new ProjectionFunction(linearSpace, p(), tolerance);
+            return projFunc = new ProjectionFunction(qr(), p());
         } catch (NoSuchElementException nse) {
             throw new ProjectionFunction.NoProjFuncExists(linearSpace);
         }
-        return projFunc.apply(x);
     }
 
     /**
@@ -232,7 +285,7 @@ public class RnAffineSpace extends AffineSpace<Point> implements ConvexSet<Point
     /**
      * The projection function used to find the projection onto this space.
      */
-    private ProjectionFunction projFunc = null;
+    private volatile ProjectionFunction projFunc = null;
 
     /**
      * Has a projection function been found in the past?
@@ -243,6 +296,17 @@ public class RnAffineSpace extends AffineSpace<Point> implements ConvexSet<Point
         return projFunc != null;
     }
 
+    /**
+     * Sets the projection function, one saved from an equal affine space.
+     *
+     * @param projFunc
+     * @return this
+     */
+    public RnAffineSpace setProjFunc(ProjectionFunction projFunc) {
+        this.projFunc = projFunc;
+        return this;
+    }
+
     @Override
     public String toString() {
         return linearSpace + "*x = " + b;//(p != null ? "\nwith point " + p : "\nb = " + b);
@@ -259,7 +323,7 @@ public class RnAffineSpace extends AffineSpace<Point> implements ConvexSet<Point
     public long subSpaceDim() {
         if (subSpaceDim != -2) return subSpaceDim;
         if (nullMatrixRows().length == 0) return subSpaceDim = dim();
-        return subSpaceDim = RnlinearSpace().subSpaceDim();
+        return subSpaceDim = qr().nullity();
     }
 
     /**
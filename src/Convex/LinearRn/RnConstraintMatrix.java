@@ -0,0 +1,235 @@
+package Convex.LinearRn;
+
+import Hilbert.HalfSpace;
+import Matricies.Point;
+import Matricies.PointD;
+import Matricies.Scratch;
+import java.util.List;
+
+/**
+ * The half spaces of a polyhedron in Rn packed into a single array, so that
+ * membership tests, residuals and projections onto faces are tight loops over
+ * doubles instead of calls through the Vector interface. Every x in the
+ * polyhedron satisfies normals * x &lt;= b. The inner products are taken by
+ * ResidualKernel.get(), which uses SIMD instructions when it can.
+ *
+ * @author Dov Neimand
+ */
+public class RnConstraintMatrix {
+
+    /**
+     * The normals of the half spaces, row major. Row i is in
+     * normals[i*dim, (i+1)*dim).
+     */
+    private final double[] normals;
+
+    /**
+     * The right hand side of the inequality.
+     */
+    private final double[] b;
+
+    /**
+     * The square of the magnitude of each normal.
+     */
+    private final double[] normSq;
+
+    /**
+     * The half space of each row.
+     */
+    private final HalfSpace<Point>[] faces;
+
+    private final int rows, dim;
+
+    /**
+     * Takes the inner products of the rows with points.
+     */
+    private final ResidualKernel kernel = ResidualKernel.get();
+
+    /**
+     * The constructor
+     *
+     * @param halfspaces the half spaces of the polyhedron. They are copied, so
+     * later changes to the list are not seen.
+     */
+    public RnConstraintMatrix(List<HalfSpace<Point>> halfspaces) {
+        rows = halfspaces.size();
+        dim = rows == 0 ? 0 : halfspaces.get(0).dim();
+        normals = new double[rows * dim];
+        b = new double[rows];
+        normSq = new double[rows];
+        @SuppressWarnings("unchecked") //every element came from a List<HalfSpace<Point>>
+        HalfSpace<Point>[] copy = halfspaces.toArray(HalfSpace[]::new);
+        faces = copy;
+
+        for (int i = 0; i < rows; i++) {
+            Point normal = faces[i].normal();
+            double ns = 0;
+            for (int j = 0; j < dim; j++) {
+                double n = normal.get(j);
+                normals[i * dim + j] = n;
+                ns += n * n;
+            }
+            normSq[i] = ns;
+            b[i] = faces[i].boundary().b();
+        }
+    }
+
+    /**
+     * Holds the values of sparse points while they're checked.
+     */
+    private static final Scratch scratch = new Scratch();
+
+    /**
+     * The values of a point as an array. Dense points are not copied, and
+     * sparse points are copied into a buffer of the calling thread, which may
+     * be longer than the point.
+     *
+     * @param x
+     * @return
+     */
+    private static double[] array(Point x) {
+        if (x.isDense()) return x.asDense().array();
+        double[] array = scratch.array(x.dim());
+        for (int i = 0; i < x.dim(); i++) array[i] = x.get(i);
+        return array;
+    }
+
+    /**
+     * normal_i dot x - b_i. This is positive when x is outside the half space.
+     *
+     * @param i the row
+     * @param x the values of a point.
+     * @return
+     */
+    private double residual(int i, double[] x) {
+        return kernel.residual(normals, b, x, dim, i);
+    }
+
+    /**
+     * normal_i dot x - b_i. This is positive when x is outside half space i.
+     *
+     * @param i the row
+     * @param x
+     * @return
+     */
+    public double residual(int i, Point x) {
+        return residual(i, array(x));
+    }
+
+    /**
+     * normals * x - b.
+     *
+     * @param x
+     * @return the residual of every row.
+     */
+    public double[] residuals(Point x) {
+        return kernel.residuals(normals, b, array(x), dim, new double[rows]);
+    }
+
+    /**
+     * Is x in the polyhedron?
+     *
+     * @param x
+     * @param epsilon how far outside a half space x may be and still be
+     * counted as inside it.
+     * @return
+     */
+    public boolean hasElement(Point x, double epsilon) {
+        return kernel.allWithin(normals, b, array(x), dim, epsilon);
+    }
+
+    /**
+     * The row whose half space x is furthest outside of.
+     *
+     * @param x
+     * @return the row furthest from x, the first row if x is in the
+     * polyhedron, or -1 if there are no rows.
+     */
+    public int furthestFrom(Point x) {
+        double[] residuals = residuals(x);
+        int furthest = -1;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < rows; i++) {
+            double d = Math.max(residuals[i], 0) / Math.sqrt(normSq[i]);
+            if (d > max) {
+                max = d;
+                furthest = i;
+            }
+        }
+        return furthest;
+    }
+
+    /**
+     * The projection of x onto the boundary of half space i.
+     *
+     * @param i the row
+     * @param x
+     * @return a new point on the plane normal_i dot y = b_i.
+     */
+    public PointD projOntoFace(int i, Point x) {
+        double[] xArray = array(x), proj = new double[dim];
+        double scale = residual(i, xArray) / normSq[i];
+        int offset = i * dim;
+        for (int j = 0; j < dim; j++) proj[j] = xArray[j] - scale * normals[offset + j];
+        return new PointD(proj);
+    }
+
+    /**
+     * Entry j of the normal of row i.
+     *
+     * @param i the row
+     * @param j
+     * @return
+     */
+    public double normal(int i, int j) {
+        return normals[i * dim + j];
+    }
+
+    /**
+     * The right hand side of row i.
+     *
+     * @param i the row
+     * @return
+     */
+    public double b(int i) {
+        return b[i];
+    }
+
+    /**
+     * The square of the magnitude of the normal of row i.
+     *
+     * @param i the row
+     * @return
+     */
+    public double normSq(int i) {
+        return normSq[i];
+    }
+
+    /**
+     * The half space of the given row.
+     *
+     * @param i
+     * @return
+     */
+    public HalfSpace<Point> face(int i) {
+        return faces[i];
+    }
+
+    /**
+     * The number of half spaces.
+     *
+     * @return
+     */
+    public int rows() {
+        return rows;
+    }
+
+    /**
+     * The dimension of the space the half spaces are in.
+     *
+     * @return
+     */
+    public int dim() {
+        return dim;
+    }
+}
@@ -5,14 +5,11 @@ import Hilbert.LinearSpace;
 import Matricies.Matrix;
 import Matricies.MatrixDense;
 import Matricies.MatrixSparse;
-import Matricies.ReducedRowEchelonDense;
+import Matricies.RankRevealingQR;
 import Matricies.Point;
 import Matricies.PointD;
-import Matricies.PointSparse;
 import java.util.Arrays;
 import java.util.function.Function;
-import java.util.function.IntFunction;
-import java.util.function.IntToDoubleFunction;
 import java.util.stream.IntStream;
 
 /**
@@ -75,8 +72,9 @@ public class RnLinearSpace extends LinearSpace<Point> implements ConvexSet<Point
     }
 
     /**
-     * TODO: is the null space generated from a sparse column space sparse? A
-     * linear space factory method to create a column space
+     * A linear space factory method to create a column space. The normals of
+     * the new space are an orthonormal basis for the orthogonal complement of
+     * the columns, so they are generally dense even if the basis is sparse.
      *
      * @param basis the basis of the new linear space being created. Note, the
      * basis vectors are the columns of the matrix provided here.
@@ -84,30 +82,20 @@ public class RnLinearSpace extends LinearSpace<Point> implements ConvexSet<Point
      */
     public static RnLinearSpace colSpace(Matrix basis) {
 
-        Matrix rcef = basis.T().reducedRowEchelon().T();
-
-        boolean isDense = basis.isDense();
-        int rows = basis.rows() - basis.cols(),
-                cols = basis.rows();
-
-        IntFunction<Point> setCol = i -> {
-            
-            if (i < basis.cols()){
-                IntToDoubleFunction setPoint = j -> rcef.get(j + basis.cols(), i);
-                return isDense ? new PointD(rows, setPoint) : new PointSparse(rows, setPoint);
-            }
-            else{
-                return isDense ? 
-                        new PointD(rows, i - basis.cols(), -1) : 
-                        new PointSparse(rows, i - basis.cols(), -1);
-            }
-
-        };
-        Matrix nullMatrix = isDense ? MatrixDense.fromCols(cols, setCol) : MatrixSparse.fromCols(cols, setCol);
-        
-        return new RnLinearSpace(nullMatrix.rowsArray());
+        Point[] normals = new RankRevealingQR(basis.T(), DEFAULT_TOLERANCE)
+                .nullSpaceBasis().T().rowsArray();
+
+        if (basis.isSparse())
+            return new RnLinearSpace(Arrays.stream(normals).map(Point::asSparse).toArray(Point[]::new));
+        return new RnLinearSpace(normals);
     }
 
+    /**
+     * How small a pivot may be, relative to the largest element of a matrix,
+     * before the remaining rows are taken to be dependent.
+     */
+    private static final double DEFAULT_TOLERANCE = 1e-10;
+
     /**
      * The orthogonal complement of this linear space
      *
@@ -151,16 +139,15 @@ public class RnLinearSpace extends LinearSpace<Point> implements ConvexSet<Point
      * Returns the column space matrix for the given null space matrix.
      *
      * @param nullSpaceMatrix
-     * @return
+     * @return a matrix with orthonormal columns that span the null space, or
+     * a zero column if the null space is {0}.
      */
     public static MatrixDense colSpaceMatrix(Matrix nullSpaceMatrix) {
-        ReducedRowEchelonDense rre = new ReducedRowEchelonDense(nullSpaceMatrix);
-
-        MatrixDense IMinus = MatrixDense.identity(Math.max(rre.numRows, rre.numCols)).minus(rre.square());
+        RankRevealingQR qr = new RankRevealingQR(nullSpaceMatrix, DEFAULT_TOLERANCE);
 
-        if (rre.noFreeVariable()) return new PointD(rre.numRows);
+        if (qr.nullity() == 0) return new PointD(qr.dim());
 
-        return MatrixDense.subMatrixFromCols(rre.freeVariables(), IMinus);
+        return qr.nullSpaceBasis();
     }
 
     @Override
@@ -244,7 +231,7 @@ public class RnLinearSpace extends LinearSpace<Point> implements ConvexSet<Point
      * @return
      */
     public long subSpaceDim() {
-        return colSpaceMatrix().rank();
+        return new RankRevealingQR(matrix(), tolerance).nullity();
 
     }
 
@@ -0,0 +1,152 @@
+package Convex.LinearRn;
+
+import Matricies.Matrix;
+import Matricies.Point;
+import java.util.Arrays;
+
+/**
+ * A GramProjection for normals that are mostly zeros. Only the non zero
+ * elements of the normals are kept, the Gram matrix is found from the inner
+ * products of their non zero elements, and a projection multiplies only the
+ * non zero elements, so a projection is O(nnz + k^2) time and the function is
+ * O(nnz + k^2) memory, where nnz is the number of non zero elements of the
+ * normals.
+ *
+ * @author Dov Neimand
+ */
+public class SparseGramProjection extends GramProjection {
+
+    /**
+     * The constructor.
+     *
+     * @param normals the rows of N.
+     * @param b
+     * @throws DependentNormals if the normals are not linearly independent.
+     */
+    public SparseGramProjection(Point[] normals, Point b) {
+        super(new SparseRows(normals), b.asDense().array().clone());
+    }
+
+    /**
+     * The projection onto the whole space, that planes can be concatenated
+     * to. The normals of the planes are kept sparse.
+     *
+     * @return
+     */
+    public static GramProjection allSpace() {
+        return new GramProjection(new SparseRows(new Point[0]), new double[0]);
+    }
+
+    /**
+     * Should the projection onto the space with the given normals be sparse?
+     *
+     * @param normals
+     * @return true if few enough of the elements of the normals are non zero.
+     * @see Matrix#shouldBeSparse(long, int, int)
+     */
+    public static boolean shouldBeSparse(Point[] normals) {
+        long numNonZeroes = 0;
+        for (Point normal : normals) numNonZeroes += normal.numNonZeroes();
+        return Matrix.shouldBeSparse(numNonZeroes, normals.length, normals[0].dim());
+    }
+
+    /**
+     * The non zero elements of the normals. The non zero elements of row i
+     * are value[i] in the columns index[i], in increasing order.
+     */
+    private static class SparseRows extends Rows {
+
+        private final int[][] index;
+
+        private final double[][] value;
+
+        private SparseRows(Point[] normals) {
+            this(new int[normals.length][], new double[normals.length][]);
+            for (int i = 0; i < normals.length; i++) set(i, normals[i]);
+        }
+
+        private SparseRows(int[][] index, double[][] value) {
+            this.index = index;
+            this.value = value;
+        }
+
+        /**
+         * Saves the non zero elements of the normal as row i.
+         *
+         * @param i
+         * @param normal
+         */
+        private void set(int i, Point normal) {
+            int nnz = normal.numNonZeroes(), k = 0;
+            index[i] = new int[nnz];
+            value[i] = new double[nnz];
+            if (normal.isSparse()) {
+                int[] sorted = normal.asSparse().nonZeroes()
+                        .mapToInt(coord -> coord.row).sorted().toArray();
+                for (int j : sorted) {
+                    index[i][k] = j;
+                    value[i][k++] = normal.get(j);
+                }
+            } else {
+                double[] array = normal.array();
+                for (int j = 0; j < array.length; j++)
+                    if (array[j] != 0) {
+                        index[i][k] = j;
+                        value[i][k++] = array[j];
+                    }
+            }
+        }
+
+        @Override
+        int size() {
+            return index.length;
+        }
+
+        @Override
+        double dot(int i, double[] x) {
+            double dot = 0;
+            for (int k = 0; k < index[i].length; k++) dot += value[i][k] * x[index[i][k]];
+            return dot;
+        }
+
+        /**
+         * The inner product of rows i and j, merging their sorted indices.
+         *
+         * @param i
+         * @param j
+         * @return
+         */
+        @Override
+        double dot(int i, int j) {
+            int[] a = index[i], c = index[j];
+            double dot = 0;
+            for (int p = 0, q = 0; p < a.length && q < c.length;)
+                if (a[p] < c[q]) p++;
+                else if (a[p] > c[q]) q++;
+                else dot += value[i][p++] * value[j][q++];
+            return dot;
+        }
+
+        @Override
+        void subtract(int i, double z, double[] x) {
+            for (int k = 0; k < index[i].length; k++) x[index[i][k]] -= z * value[i][k];
+        }
+
+        @Override
+        Rows concat(Point normal) {
+            SparseRows concat = new SparseRows(
+                    Arrays.copyOf(index, index.length + 1),
+                    Arrays.copyOf(value, value.length + 1)
+            );
+            concat.set(index.length, normal);
+            return concat;
+        }
+
+        @Override
+        long bytes() {
+            long bytes = 16;
+            for (int[] row : index) bytes += 32 + 12L * row.length;
+            return bytes;
+        }
+    }
+}
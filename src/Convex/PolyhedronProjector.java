@@ -0,0 +1,465 @@
+package Convex;
+
+import Convex.ASKeys.FaceKey;
+import Convex.LinearRn.GramProjection;
+import Convex.LinearRn.IncrementalProjection;
+import Convex.LinearRn.PhaseOneSimplex;
+import Convex.LinearRn.ProjectionFunction;
+import Convex.LinearRn.RnConstraintMatrix;
+import Convex.LinearRn.RnAffineProjection;
+import Convex.LinearRn.RnAffineSpace;
+import Convex.LinearRn.SparseGramProjection;
+import Hilbert.AffineSpace;
+import Hilbert.HalfSpace;
+import Hilbert.Optimization.CoupRliecOrderedHalfSpaces;
+import Hilbert.Optimization.Solution;
+import Hilbert.Plane;
+import Matricies.Matrix;
+import Matricies.MatrixDense;
+import Matricies.Point;
+import Matricies.PointD;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import tools.BoundedCache;
+import tools.ExecutionPolicy;
+import tools.SolverStatistics;
+
+/**
+ * Projects many points onto the same polyhedron. The affine spaces at the
+ * intersections of the faces, and their projection functions, do not depend on
+ * the point being projected, so they are computed once and shared between all
+ * the projections. Only the argmins over the P-cones are recomputed for each
+ * point.
+ *
+ * The projector takes a snapshot of the half spaces of the polyhedron when it
+ * is created. Changes made to the polyhedron afterwards are not seen by the
+ * projector.
+ *
+ * @author Dov Neimand
+ */
+public class PolyhedronProjector {
+
+    /**
+     * The half spaces of the polyhedron being projected onto.
+     */
+    private final List<HalfSpace<Point>> halfspaces;
+
+    /**
+     * The index of each half space, found from the normal of its boundary.
+     * Some polyhedra share a normal between several half spaces, so each
+     * normal maps to all the indices it's used by.
+     */
+    private final Map<Point, int[]> faceIndices;
+
+    /**
+     * The half spaces packed into a matrix for fast membership tests. It is
+     * shared by the polyhedra handed to the solver.
+     */
+    private final RnConstraintMatrix constraints;
+
+    /**
+     * How far outside of a half space a point may be and still be counted as
+     * in it. This is the tolerance of the boundaries of the half spaces.
+     */
+    private final double epsilon;
+
+    /**
+     * How the solvers, and the projections of many points, run their streams.
+     */
+    private final ExecutionPolicy policy;
+
+    /**
+     * The projection functions of the affine spaces that have been projected
+     * onto, keyed by the indices of the faces that intersect to make them.
+     * The solvers find them one face at a time through faces, and
+     * affineSpace finds them all at once. The least recently used are
+     * evicted when they take up too much memory.
+     */
+    private final BoundedCache<FaceKey, ProjectionFunction> affineSpaces;
+
+    /**
+     * Finds the projections onto the affine spaces for the P-cones of the
+     * solvers from the saved ones.
+     */
+    private final IncrementalProjection.Faces faces;
+
+    /**
+     * The transpose of the matrix whose rows are the normals of the half
+     * spaces. Multiplying a matrix of points by this gives the inner product
+     * of every point with every normal. Be sure to call with normalsT().
+     */
+    private MatrixDense normalsT;
+
+    /**
+     * The magnitudes of the normals.
+     */
+    private double[] normalMagnitudes;
+
+    /**
+     * The number of redundant half spaces removed from the polyhedron before
+     * it was given to this projector.
+     */
+    private int facesPruned = 0;
+
+    /**
+     * A point known to be in the polyhedron, the most recent projection once
+     * there is one. The solvers leave out half spaces whose boundaries are
+     * farther from the point being projected than it is. Be sure to call with
+     * feasiblePoint().
+     */
+    private volatile Point feasiblePoint;
+
+    /**
+     * Has phase one of the simplex method found the polyhedron to be empty?
+     */
+    private volatile boolean empty = false;
+
+    /**
+     * The constructor.
+     *
+     * @param poly the polyhedron points will be projected onto.
+     */
+    public PolyhedronProjector(RnPolyhedron poly) {
+        this(poly, BoundedCache.DEFAULT_BYTES);
+    }
+
+    /**
+     * The constructor.
+     *
+     * @param poly the polyhedron points will be projected onto.
+     * @param cacheBytes the most memory the saved projection functions may
+     * use.
+     */
+    public PolyhedronProjector(RnPolyhedron poly, long cacheBytes) {
+        halfspaces = new ArrayList<>(poly.getHalfSpaces());
+        faceIndices = new IdentityHashMap<>(halfspaces.size());
+        affineSpaces = new BoundedCache<>(cacheBytes, ProjectionFunction::bytes);
+        constraints = poly.constraints();
+        epsilon = halfspaces.stream().mapToDouble(hs -> hs.boundary().tolerance).max().orElse(poly.epsilon);
+        policy = poly.getExecutionPolicy();
+
+        for (int i = 0; i < halfspaces.size(); i++)
+            faceIndices.merge(halfspaces.get(i).normal(), new int[]{i}, PolyhedronProjector::concat);
+
+        faces = new Faces(!halfspaces.isEmpty() && SparseGramProjection.shouldBeSparse(
+                halfspaces.stream().map(hs -> hs.normal()).toArray(Point[]::new)));
+    }
+
+    /**
+     * Concatenates two arrays of indices.
+     *
+     * @param a
+     * @param b
+     * @return
+     */
+    private static int[] concat(int[] a, int[] b) {
+        int[] concat = new int[a.length + b.length];
+        System.arraycopy(a, 0, concat, 0, a.length);
+        System.arraycopy(b, 0, concat, a.length, b.length);
+        return concat;
+    }
+
+    /**
+     * The index of the face with the given boundary.
+     *
+     * @param normal the normal of the boundary.
+     * @param b the boundary is normal dot x = b.
+     * @return the index of the face, or -1 if it is not a face of this
+     * polyhedron.
+     */
+    private int faceIndex(Point normal, double b) {
+        int[] indices = faceIndices.get(normal);
+        if (indices == null) return -1;
+        for (int i : indices)
+            if (halfspaces.get(i).boundary().b() == b) return i;
+        return -1;
+    }
+
+    /**
+     * An RnAffineSpace equal to the given affine space with its saved
+     * projection function. If the space has not been seen before, its
+     * projection function is created and saved.
+     *
+     * @param as an intersection of the boundaries of some of the faces.
+     * @return an RnAffineSpace with a saved projection function.
+     */
+    public RnAffineSpace affineSpace(AffineSpace<Point> as) {
+        RnAffineSpace space = new RnAffineSpace(as);
+        if (as.isAllSpace()) return space;
+
+        Point[] normals = as.nullMatrixRows();
+        FaceKey key = FaceKey.EMPTY;
+        for (int i = 0; i < normals.length; i++) {
+            int index = faceIndex(normals[i], as.b.get(i));
+            if (index == -1) return space;
+            key = key.with(index);
+        }
+
+        ProjectionFunction projFunc;
+        try {
+            projFunc = affineSpaces.get(key, k -> space.getProjFunc());
+        } catch (ProjectionFunction.NoProjFuncExists ex) {
+            return space; //The exception is thrown again when the space is projected onto.
+        }
+        if (projFunc instanceof GramProjection && ((GramProjection) projFunc).isEmpty())
+            return space;
+        return space.setProjFunc(projFunc);
+    }
+
+    /**
+     * Finds the affine spaces of the P-cones from the saved projection
+     * functions, and saves the ones it finds.
+     */
+    private class Faces implements IncrementalProjection.Faces {
+
+        /**
+         * The projection onto the whole space.
+         */
+        private final GramProjection allSpace;
+
+        /**
+         * The constructor.
+         *
+         * @param sparse should the normals of the faces be kept sparse?
+         */
+        private Faces(boolean sparse) {
+            allSpace = sparse ? SparseGramProjection.allSpace() : GramProjection.allSpace();
+        }
+
+        @Override
+        public GramProjection allSpace() {
+            return allSpace;
+        }
+
+        @Override
+        public FaceKey with(FaceKey key, Plane<Point> plane) {
+            int index = faceIndex(plane.normal(), plane.b());
+            return index == -1 ? null : key.with(index);
+        }
+
+        /**
+         * The saved projection function with the given key. If affineSpace
+         * saved one that is not a GramProjection, when the normals are
+         * dependent, it can not be concatenated to, so it's found again and
+         * not saved.
+         *
+         * @param key
+         * @param concat
+         * @return
+         */
+        @Override
+        public GramProjection get(FaceKey key, Supplier<GramProjection> concat) {
+            ProjectionFunction projFunc = affineSpaces.get(key, k -> concat.get());
+            return projFunc instanceof GramProjection ? (GramProjection) projFunc : concat.get();
+        }
+    }
+
+    /**
+     * The saved projection functions and how often they were found.
+     *
+     * @return
+     */
+    public BoundedCache<FaceKey, ProjectionFunction> affineSpaceCache() {
+        return affineSpaces;
+    }
+
+    /**
+     * The projection of a point onto the polyhedron.
+     *
+     * @param y the point being projected.
+     * @return the nearest point in the polyhedron to y.
+     */
+    public Point proj(Point y) {
+        if (halfspaces.isEmpty()) return y;
+        return solve(y).argMin();
+    }
+
+    /**
+     * The projection of a point onto the polyhedron together with statistics
+     * about how it was found.
+     *
+     * @param y the point being projected.
+     * @return the nearest point in the polyhedron to y and how it was found.
+     */
+    public Solution<Point> solve(Point y) {
+        return solve(y, null);
+    }
+
+    /**
+     * The projection of a point onto the polyhedron, starting the search from
+     * the active set of the projection of a nearby point. When points along a
+     * trajectory are projected one after the other, the active set of each
+     * solution is usually the right place to start the next.
+     *
+     * @param y the point being projected.
+     * @param activeSet the active set of a previous solution from this
+     * projector, or null for a cold start.
+     * @return the nearest point in the polyhedron to y, its active set, and
+     * how it was found.
+     */
+    public Solution<Point> solve(Point y, List<HalfSpace<Point>> activeSet) {
+        Point seed = feasiblePoint();
+        if (empty) return new Solution<>(null, new ArrayList<>(0), new SolverStatistics(0));
+
+        CoupRliecOrderedHalfSpaces<Point> solver = new CoupRliecOrderedHalfSpaces<>(
+                new RnAffineProjection(y, this::affineSpace, faces),
+                solverPolyhedron(new ArrayList<>(halfspaces))
+        ).setFeasiblePoint(seed).setExecutionPolicy(policy);
+        solver.setWarmStart(activeSet);
+        Solution<Point> solution = solver.solve();
+        solution.getStatistics().setFacesPruned(facesPruned);
+        return saveFeasiblePoint(solution);
+    }
+
+    /**
+     * A point known to be in the polyhedron. Before the first projection it's
+     * found with phase one of the simplex method, which also finds out if the
+     * polyhedron is empty.
+     *
+     * @return null if the polyhedron is empty or has no half spaces.
+     */
+    private Point feasiblePoint() {
+        Point fp = feasiblePoint;
+        if (fp != null || empty || halfspaces.isEmpty()) return fp;
+        try {
+            return feasiblePoint = new PhaseOneSimplex(constraints, epsilon).feasiblePoint();
+        } catch (PhaseOneSimplex.Infeasible ex) {
+            empty = true;
+            return null;
+        }
+    }
+
+    /**
+     * Saves the solution as the feasible point for the next projection.
+     *
+     * @param solution
+     * @return the solution.
+     */
+    private Solution<Point> saveFeasiblePoint(Solution<Point> solution) {
+        if (solution.argMin() != null) feasiblePoint = solution.argMin();
+        return solution;
+    }
+
+    /**
+     * Sets the number of redundant half spaces removed from the polyhedron
+     * before it was given to this projector, which is reported with each
+     * solution.
+     *
+     * @param facesPruned
+     */
+    void setFacesPruned(int facesPruned) {
+        this.facesPruned = facesPruned;
+    }
+
+    /**
+     * The projections of many points onto the polyhedron. The points are
+     * projected in parallel if the execution policy allows it, and the
+     * distances from every point to every face are found with a single matrix
+     * multiplication and used to order the faces for each point.
+     *
+     * @param points each row is a point to be projected.
+     * @return a matrix whose rows are the projections of the rows of points.
+     * If the polyhedron is empty, the rows are NaN.
+     */
+    public Matrix projAll(Matrix points) {
+        if (halfspaces.isEmpty()) return points;
+
+        MatrixDense residuals = points.asDense().mult(normalsT());
+
+        PointD[] projections = new PointD[points.rows()];
+        long work = (long) points.rows() * halfspaces.size() * points.cols();
+        return policy.run(() -> {
+            policy.apply(IntStream.range(0, points.rows()), work).forEach(i -> {
+                Point proj = proj(points.row(i), residuals, i);
+                projections[i] = proj == null ? nan(points.cols()) : proj.asDense();
+            });
+            return MatrixDense.fromRows(projections);
+        });
+    }
+
+    /**
+     * The projection of a point with the faces ordered from the given inner
+     * products.
+     *
+     * @param y the point being projected.
+     * @param ip the inner products of the points with the normals.
+     * @param row the row of ip that belongs to y.
+     * @return the projection of y onto the polyhedron.
+     */
+    private Point proj(Point y, MatrixDense ip, int row) {
+        Point seed = feasiblePoint();
+        if (empty) return null;
+
+        double[] order = new double[halfspaces.size()];
+        Arrays.setAll(order, j -> {
+            double residual = ip.get(row, j) - halfspaces.get(j).boundary().b();
+            if (residual < 0) return Double.POSITIVE_INFINITY;
+            return -residual / normalMagnitudes[j];
+        });
+
+        List<HalfSpace<Point>> sorted = new ArrayList<>(halfspaces.size());
+        IntStream.range(0, halfspaces.size()).boxed()
+                .sorted(Comparator.comparingDouble(j -> order[j]))
+                .forEach(j -> sorted.add(halfspaces.get(j)));
+
+        Point proj = new CoupRliecOrderedHalfSpaces<>(
+                new RnAffineProjection(y, this::affineSpace, faces),
+                solverPolyhedron(sorted)
+        ).setHalfSpacesSorted(true).setFeasiblePoint(seed).setExecutionPolicy(policy).argMin();
+        if (proj != null) feasiblePoint = proj;
+        return proj;
+    }
+
+    /**
+     * A polyhedron for the solver that checks membership with the saved
+     * constraint matrix.
+     *
+     * @param halfspaces the half spaces of the polyhedron, in the order the
+     * solver should use them. The solver may reorder this list.
+     * @return
+     */
+    private RnPolyhedron solverPolyhedron(List<HalfSpace<Point>> halfspaces) {
+        RnPolyhedron poly = new RnPolyhedron(halfspaces, constraints);
+        poly.setEpsilon(epsilon);
+        return poly;
+    }
+
+    /**
+     * The transpose of the matrix of normals.
+     *
+     * @return
+     */
+    private synchronized MatrixDense normalsT() {
+        if (normalsT != null) return normalsT;
+        normalMagnitudes = new double[halfspaces.size()];
+        Arrays.setAll(normalMagnitudes, i -> halfspaces.get(i).normal().magnitude());
+        return normalsT = MatrixDense.fromRows(
+                halfspaces.stream().map(hs -> hs.normal()).toArray(Point[]::new)
+        ).T();
+    }
+
+    /**
+     * A point whose values are all NaN.
+     *
+     * @param dim
+     * @return
+     */
+    private static PointD nan(int dim) {
+        return new PointD(dim, i -> Double.NaN);
+    }
+
+    /**
+     * The number of affine spaces whose projection functions are saved.
+     *
+     * @return
+     */
+    public int numSavedAffineSpaces() {
+        return affineSpaces.size();
+    }
+}
@@ -2,6 +2,9 @@
 package Convex;
 
 import Convex.LinearRn.RnAffineProjection;
+import Convex.LinearRn.PhaseOneSimplex;
+import Convex.LinearRn.ProjectionFunction;
+import Convex.LinearRn.RnConstraintMatrix;
 import Hilbert.HalfSpace;
 import Hilbert.Polyhedron;
 import java.util.List;
@@ -10,21 +13,25 @@ import Convex.LinearRn.RnAffineSpace;
 import Hilbert.Optimization.CoupRliecOrderedHalfSpaces;
 import Hilbert.Optimization.CoupRliec;
 import Hilbert.Optimization.CoupRliecPointMethod;
+import Hilbert.Optimization.GoldfarbIdnani;
+import Hilbert.Optimization.Solution;
 import Matricies.Matrix;
+import Matricies.MatrixDense;
 import Matricies.Point;
 import Matricies.PointD;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.stream.Collectors;
-import java.util.Comparator;
 import java.util.HashSet;
 import java.util.NoSuchElementException;
-import java.util.Random;
+import java.util.concurrent.atomic.DoubleAccumulator;
 import java.util.function.Predicate;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
+import tools.CombinationSpliterator;
 import tools.Combinatorics;
+import tools.ExecutionPolicy;
 
 /**
  *
@@ -35,6 +42,19 @@ public class RnPolyhedron extends Polyhedron<Point>{
     public RnPolyhedron(List<HalfSpace<Point>> halfspaces) {
         super(halfspaces);
     }
+
+    /**
+     * A polyhedron that shares a constraint matrix with another. The list of
+     * half spaces may be in a different order than the rows of the matrix,
+     * but must hold the same half spaces.
+     *
+     * @param halfspaces the half spaces of the polyhedron.
+     * @param constraints the half spaces packed into a matrix.
+     */
+    RnPolyhedron(List<HalfSpace<Point>> halfspaces, RnConstraintMatrix constraints) {
+        super(halfspaces);
+        this.constraints = constraints;
+    }
     
     public Stream<RnPlane> planes(){
         return halfspaces.stream().map(hs -> new RnPlane(hs.boundary()));
@@ -72,6 +92,7 @@ public class RnPolyhedron extends Polyhedron<Point>{
      */
     public void add(HalfSpace<Point> hs) {
         halfspaces.add(hs);
+        clearCaches();
     }
 
     /**
@@ -82,6 +103,7 @@ public class RnPolyhedron extends Polyhedron<Point>{
      */
     public void remove(HalfSpace<Point> hs) {
         halfspaces.remove(hs);
+        clearCaches();
     }
 
     /**
@@ -92,6 +114,7 @@ public class RnPolyhedron extends Polyhedron<Point>{
      */
     public void removeIf(Predicate<HalfSpace<Point>> pred) {
         halfspaces.removeIf(pred);
+        clearCaches();
     }
 
     /**
@@ -136,7 +159,12 @@ public class RnPolyhedron extends Polyhedron<Point>{
      * @param toClone a polytope to clone
      */
     public RnPolyhedron(RnPolyhedron toClone) {
-        this(toClone.halfspaces);
+        this(new ArrayList<>(toClone.halfspaces));
+        epsilon = toClone.epsilon;
+        policy = toClone.policy;
+        projectionStrategy = toClone.projectionStrategy;
+        couprliecMaxPCones = toClone.couprliecMaxPCones;
+        removeRedundant = toClone.removeRedundant;
     }
 
     /**
@@ -189,11 +217,13 @@ public class RnPolyhedron extends Polyhedron<Point>{
     public RnPolyhedron addFace(HalfSpace<Point> p) {
         
         halfspaces.add(p);
+        clearCaches();
         return this;
     }
 
     public RnPolyhedron addFaces(RnPolyhedron p) {
         halfspaces.addAll(p.halfspaces);
+        clearCaches();
         return this;
     }
 
@@ -208,7 +238,7 @@ public class RnPolyhedron extends Polyhedron<Point>{
 
     @Override
     public boolean hasElement(Point p) {
-        return stream().parallel().allMatch((HalfSpace<Point> hs) -> hs.hasElement(p, epsilon));
+        return constraints().hasElement(p, epsilon);
     }
 
     /**
@@ -240,6 +270,7 @@ public class RnPolyhedron extends Polyhedron<Point>{
      */
     public void clearFaces() {
         halfspaces.clear();
+        clearCaches();
     }
 
     @Override
@@ -296,7 +327,7 @@ public class RnPolyhedron extends Polyhedron<Point>{
 
     @Override
     public boolean hasElement(Point x, double epsilon) {
-        return stream().allMatch(halfSpace -> halfSpace.hasElement(x, epsilon));
+        return constraints().hasElement(x, epsilon);
     }
 
 
@@ -307,19 +338,35 @@ public class RnPolyhedron extends Polyhedron<Point>{
      * @return the closest plane.
      */
     public HalfSpace<Point> closestTo(Point x) {
-        return stream().parallel().max(Comparator.comparing(plane -> plane.d(x))).get();
+        if (isEmpty()) throw new NoSuchElementException("The polyhedron has no faces.");
+        RnConstraintMatrix cm = constraints();
+        return cm.face(cm.furthestFrom(x));
     }
 
     /**
-     * Some point in this polytope if it's non empty. Otherwise a NaN point.
-     * There is likely a faster way to do this.
+     * Some point in this polytope, found with phase one of the simplex method
+     * on the constraint matrix.
      *
      * @return
+     * @throws PhaseOneSimplex.Infeasible if the polytope is empty. It holds
+     * multipliers of the half spaces that prove it.
      */
     public Point feasibilityPoint() throws NoSuchElementException {
+        return new PhaseOneSimplex(constraints(), epsilon).feasiblePoint();
+    }
 
-//        return new GradDescentFeasibility();
-        return bruteForceFeasibility();
+    /**
+     * Does this polytope have any points in it?
+     *
+     * @return
+     */
+    public boolean hasFeasiblePoint() {
+        try {
+            feasibilityPoint();
+            return true;
+        } catch (PhaseOneSimplex.Infeasible ex) {
+            return false;
+        }
     }
 
     /**
@@ -336,31 +383,131 @@ public class RnPolyhedron extends Polyhedron<Point>{
     }
 
     /**
-     * This is a brute force projection method. It works by sampling all the
-     * affine spaces, and seeing which projections are in this polytope.
+     * This is a brute force projection method. It projects y onto every
+     * intersection of bounding planes and keeps the nearest projection that's
+     * in this polytope. The intersections of each size are enumerated by index
+     * in parallel, and an intersection is skipped without projecting if one of
+     * its planes is farther from y than the nearest projection found so far.
      *
      * @param y the point being projected.
      * @return the projection of y onto this convex polytope.
+     * @throws NoSuchElementException if none of the projections are in this
+     * polytope. The message says what the search found.
      */
     public Point bruteForceProjection(Point y) {
+        if (hasElement(y, epsilon)) return y;
+
+        RnConstraintMatrix cm = constraints();
+        RnPlane[] planes = new RnPlane[cm.rows()];
+        double[] planeDist = new double[planes.length];
+        for (int i = 0; i < planes.length; i++) { //each plane comes from the row its distance is found from
+            planes[i] = new RnPlane(cm.face(i).boundary());
+            planeDist[i] = Math.abs(cm.residual(i, y)) / Math.sqrt(cm.normSq(i));
+        }
 
-        try {
-            return affineSubSpaces().map(as -> as.proj(y))
-                    .filter(asProj -> hasElement(asProj, epsilon))
-                    .min(Comparator.comparing(p -> p.d(y))).get();
-        } catch (NoSuchElementException ex) {
-
-            String problem = toString()
-                    + "\ny = " + y
-                    + "\npost filter count = " + affineSubSpaces().map(as -> as.proj(y))
-                            .filter(asProj -> hasElement(asProj, epsilon)).count()
-                    + "\nprefilter count = " + affineSubSpaces().count()
-                    + "\nprojections = \n"
-                    + affineSubSpaces().map(as -> as.proj(y)).map(p -> p.toString())
-                            .reduce((a, b) -> a + "\n" + b).get();
-
-            throw new NoSuchElementException(problem);
+        DoubleAccumulator bound = new DoubleAccumulator(Math::min, Double.POSITIVE_INFINITY);
+        BruteForceSearch search = new BruteForceSearch();
 
+        for (int k = 1; k <= Math.min(dim(), planes.length); k++) {
+            Stream<int[]> combs = policy.apply(CombinationSpliterator.stream(planes.length, k, false),
+                    Combinatorics.choose(planes.length, k) * k * dim());
+            search.combine(policy.run(() -> combs.collect(BruteForceSearch::new,
+                    (found, comb) -> found.accept(comb, planes, planeDist, bound, y),
+                    BruteForceSearch::combine)));
+        }
+
+        if (search.argMin == null)
+            throw new NoSuchElementException(toString() + "\ny = " + y + "\n" + search);
+        return search.argMin;
+    }
+
+    /**
+     * The nearest projection found by a brute force search, and what the
+     * search did, for when it fails.
+     */
+    private class BruteForceSearch {
+
+        /**
+         * How many projections are kept to describe a failed search.
+         */
+        private static final int MAX_SAMPLES = 16;
+
+        private Point argMin;
+
+        private double distance = Double.POSITIVE_INFINITY;
+
+        private long intersections, cutOff, noProjection, inPolytope;
+
+        private final List<Point> samples = new ArrayList<>(MAX_SAMPLES);
+
+        /**
+         * Projects onto the intersection of the chosen planes, unless one of
+         * them is too far away.
+         *
+         * @param comb the indices of the chosen planes.
+         * @param planes
+         * @param planeDist the distance from y to each plane.
+         * @param bound the distance to the nearest projection found by any
+         * thread.
+         * @param y the point being projected.
+         */
+        private void accept(int[] comb, RnPlane[] planes, double[] planeDist, DoubleAccumulator bound, Point y) {
+            intersections++;
+            double cutoff = bound.get();
+            for (int i : comb)
+                if (planeDist[i] > cutoff) {
+                    cutOff++;
+                    return;
+                }
+
+            RnPlane[] chosen = new RnPlane[comb.length];
+            for (int i = 0; i < comb.length; i++) chosen[i] = planes[comb[i]];
+
+            Point proj;
+            try {
+                proj = new RnAffineSpace(chosen).proj(y);
+            } catch (ProjectionFunction.NoProjFuncExists ex) {
+                noProjection++;
+                return;
+            }
+            if (samples.size() < MAX_SAMPLES) samples.add(proj);
+            if (!hasElement(proj, epsilon)) return;
+
+            inPolytope++;
+            double d = proj.d(y);
+            if (d < distance) {
+                distance = d;
+                argMin = proj;
+                bound.accumulate(d);
+            }
+        }
+
+        /**
+         * Adds another search's results to this one.
+         *
+         * @param other
+         */
+        private void combine(BruteForceSearch other) {
+            intersections += other.intersections;
+            cutOff += other.cutOff;
+            noProjection += other.noProjection;
+            inPolytope += other.inPolytope;
+            for (int i = 0; i < other.samples.size() && samples.size() < MAX_SAMPLES; i++)
+                samples.add(other.samples.get(i));
+            if (other.distance < distance) {
+                distance = other.distance;
+                argMin = other.argMin;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "intersections = " + intersections
+                    + "\ncut off by distance = " + cutOff
+                    + "\nwithout a projection = " + noProjection
+                    + "\nprojections in the polytope = " + inPolytope
+                    + "\nsome projections = \n"
+                    + samples.stream().map(Point::toString).collect(Collectors.joining("\n"));
         }
     }
 
@@ -394,11 +541,13 @@ public class RnPolyhedron extends Polyhedron<Point>{
      */
     public Stream<RnAffineSpace> affineSubSpaces(int maxHSPerIntersection) {
 
+        RnPlane[] planes = planes().toArray(RnPlane[]::new);
+
         return IntStream
-                .range(0, maxHSPerIntersection)
-                .mapToObj(i -> i)
-                .flatMap(i -> Combinatorics.choose(planes().collect(Collectors.toList()), i))
-                .map(planeSet -> new RnAffineSpace(planeSet));
+                .rangeClosed(0, Math.min(maxHSPerIntersection, size()))
+                .boxed()
+                .flatMap(i -> CombinationSpliterator.stream(planes.length, i, false))
+                .map(comb -> new RnAffineSpace(Arrays.stream(comb).mapToObj(i -> planes[i]).toArray(RnPlane[]::new)));
     }
 
 
@@ -422,19 +571,367 @@ public class RnPolyhedron extends Polyhedron<Point>{
     }
 
 
+    /**
+     * Projects points onto this polyhedron, reusing the affine spaces and
+     * projection functions computed for earlier points. Be sure to call with
+     * projector().
+     */
+    private volatile PolyhedronProjector projector;
+
+    /**
+     * The projector for this polyhedron. It is created the first time it is
+     * needed and thrown out whenever a half space is added or removed.
+     *
+     * @return a projector for this polyhedron.
+     */
+    public PolyhedronProjector projector() {
+        PolyhedronProjector proj = projector;
+        if (proj == null) {
+            proj = new PolyhedronProjector(removeRedundant ? reduced() : this);
+            proj.setFacesPruned(removeRedundant ? numRedundant() : 0);
+            projector = proj;
+        }
+        return proj;
+    }
+
+    /**
+     * Should redundant half spaces be removed before projecting with
+     * CoupRliec?
+     */
+    private boolean removeRedundant = true;
+
+    /**
+     * Sets whether the projector works on the reduced polyhedron, without the
+     * redundant half spaces. Each redundant half space doubles the number of
+     * P-cones CoupRliec may search, so this is on by default.
+     *
+     * @param removeRedundant
+     */
+    public void setRemoveRedundant(boolean removeRedundant) {
+        this.removeRedundant = removeRedundant;
+        projector = null;
+    }
+
+    /**
+     * This polyhedron without its redundant half spaces. Be sure to call with
+     * reduced().
+     */
+    private volatile RnPolyhedron reduced;
+
+    /**
+     * The same set as this polyhedron, without the half spaces that can be
+     * removed without changing it. It is created the first time it is needed
+     * and thrown out whenever a half space is added or removed.
+     *
+     * @return
+     */
+    public RnPolyhedron reduced() {
+        RnPolyhedron r = reduced;
+        if (r == null) reduced = r = withoutRedundant();
+        return r;
+    }
+
+    /**
+     * The number of half spaces removed from the reduced polyhedron.
+     *
+     * @return
+     */
+    public int numRedundant() {
+        return size() - reduced().size();
+    }
+
+    /**
+     * Removes half spaces whose normal points the same way as another's and
+     * whose boundary is as far or farther out. Normals and offsets are
+     * divided by the magnitude of the normal, found from its inner product
+     * with itself, before they're compared.
+     *
+     * @return the half spaces that are left, in their original order.
+     */
+    private List<HalfSpace<Point>> withoutParallel() {
+        int n = size();
+        double[] mag = new double[n];
+        for (int i = 0; i < n; i++) {
+            Point normal = getHS(i).normal();
+            mag[i] = Math.sqrt(normal.dot(normal));
+        }
+        boolean[] removed = new boolean[n];
+
+        for (int i = 0; i < n; i++) {
+            if (removed[i]) continue;
+            for (int j = i + 1; j < n && !removed[i]; j++) {
+                if (removed[j]) continue;
+                HalfSpace<Point> hi = getHS(i), hj = getHS(j);
+                if (hi.normal().dot(hj.normal()) < (1 - 1e-12) * mag[i] * mag[j]) continue;
+                double bi = hi.boundary().b() / mag[i], bj = hj.boundary().b() / mag[j];
+                if (bi <= bj) removed[j] = true;
+                else removed[i] = true;
+            }
+        }
+
+        List<HalfSpace<Point>> kept = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) if (!removed[i]) kept.add(getHS(i));
+        return kept;
+    }
+
+    /**
+     * A half space is redundant if no point of the polyhedron made from the
+     * other half spaces is outside of it by more than its tolerance. This is
+     * checked by asking the active set method for a point in the other half
+     * spaces and the shifted complement, which it reports as empty if there
+     * is none. The half spaces are checked one at a time, each against those
+     * that are left, so two half spaces that make each other redundant are not
+     * both removed.
+     *
+     * @return a polyhedron equal to this one with no redundant half spaces.
+     */
+    private RnPolyhedron withoutRedundant() {
+        List<HalfSpace<Point>> kept = withoutParallel();
+        Point origin = new PointD(dim());
+
+        for (int i = kept.size() - 1; i >= 0; i--) {
+            HalfSpace<Point> hs = kept.get(i);
+            List<HalfSpace<Point>> others = new ArrayList<>(kept);
+            others.remove(i);
+            others.add(new HalfSpace<>(hs.normal().mult(-1), -hs.boundary().b() - hs.boundary().tolerance));
+            if (new GoldfarbIdnani<>(origin, new RnPolyhedron(others)).setExecutionPolicy(policy).argMin() == null)
+                kept.remove(i);
+        }
+
+        RnPolyhedron r = new RnPolyhedron(kept);
+        r.epsilon = epsilon;
+        r.policy = policy;
+        r.projectionStrategy = projectionStrategy;
+        r.couprliecMaxPCones = couprliecMaxPCones;
+        r.removeRedundant = removeRedundant;
+        r.reduced = r;
+        return r;
+    }
+
+    /**
+     * The half spaces packed into a single matrix. Be sure to call with
+     * constraints().
+     */
+    private volatile RnConstraintMatrix constraints;
+
+    /**
+     * The half spaces of this polyhedron packed into a single matrix. It is
+     * created the first time it is needed and thrown out whenever a half
+     * space is added or removed.
+     *
+     * @return
+     */
+    public RnConstraintMatrix constraints() {
+        RnConstraintMatrix cm = constraints;
+        if (cm == null) constraints = cm = new RnConstraintMatrix(halfspaces);
+        return cm;
+    }
+
+    /**
+     * How the projection algorithms run their streams.
+     */
+    private ExecutionPolicy policy = ExecutionPolicy.ADAPTIVE;
+
+    /**
+     * Sets how the projection algorithms run their streams, and which pool
+     * they run on. The saved projector is thrown out so the next one uses
+     * the new policy.
+     *
+     * @param policy
+     */
+    public void setExecutionPolicy(ExecutionPolicy policy) {
+        this.policy = policy;
+        projector = null;
+    }
+
+    /**
+     * How the projection algorithms run their streams.
+     *
+     * @return
+     */
+    public ExecutionPolicy getExecutionPolicy() {
+        return policy;
+    }
+
+    /**
+     * Which algorithm projects points onto the polyhedron.
+     */
+    public enum ProjectionStrategy {
+        /**
+         * CoupRliec while the lattice of P-cones is small, and the active set
+         * method after that.
+         */
+        AUTO,
+        /**
+         * The CoupRliec algorithm with half spaces ordered by distance. It is
+         * combinatorial in the number of half spaces.
+         */
+        COUPRLIEC,
+        /**
+         * The dual active set method of Goldfarb and Idnani. It is polynomial
+         * in the number of half spaces.
+         */
+        ACTIVE_SET
+    }
+
+    /**
+     * How points are projected onto this polyhedron.
+     */
+    private ProjectionStrategy projectionStrategy = ProjectionStrategy.AUTO;
+
+    /**
+     * The default for the most P-cones, of codimension up to the dimension,
+     * that the AUTO strategy projects onto with CoupRliec. Projecting random
+     * points onto random polyhedra in R^2 through R^8, the projector, with
+     * its saved affine spaces, was as fast as the active set method with 16
+     * P-cones or fewer, and 5 to 400 times slower with more.
+     */
+    public static final long COUPRLIEC_MAX_PCONES = 16;
+
+    /**
+     * With the AUTO strategy, CoupRliec is used if there are at most this many
+     * P-cones of codimension up to the dimension.
+     */
+    private long couprliecMaxPCones = COUPRLIEC_MAX_PCONES;
+
+    /**
+     * Sets the most P-cones the AUTO strategy projects onto with CoupRliec.
+     * Raise it when many points are projected onto the same faces, so that
+     * the projector's saved affine spaces are used.
+     *
+     * @param couprliecMaxPCones
+     */
+    public void setCouprliecMaxPCones(long couprliecMaxPCones) {
+        this.couprliecMaxPCones = couprliecMaxPCones;
+    }
+
+    /**
+     * Sets which algorithm projects points onto this polyhedron.
+     *
+     * @param projectionStrategy
+     */
+    public void setProjectionStrategy(ProjectionStrategy projectionStrategy) {
+        this.projectionStrategy = projectionStrategy;
+    }
+
+    /**
+     * Is the active set method used to project onto this polyhedron?
+     *
+     * @return
+     */
+    public boolean usesActiveSet() {
+        switch (projectionStrategy) {
+            case COUPRLIEC: return false;
+            case ACTIVE_SET: return true;
+            default:
+                long pCones = 0;
+                for (int i = 0; i <= Math.min(size(), dim()) && pCones <= couprliecMaxPCones; i++)
+                    pCones += Combinatorics.choose(size(), i);
+                return pCones > couprliecMaxPCones;
+        }
+    }
+
+    /**
+     * Throws out the saved projector, constraint matrix and reduced
+     * polyhedron. This should be called whenever the half spaces change.
+     */
+    protected void clearCaches() {
+        projector = null;
+        constraints = null;
+        reduced = null;
+    }
+
     @Override
     public Point proj(Point p) {
-        return new CoupRliecOrderedHalfSpaces<>(new RnAffineProjection(p), halfspaces).argMin();
+        if (usesActiveSet()) return projActiveSet(p);
+        return projector().proj(p);
 //        return new CoupRliec<>(new RnAffineProjection(p), halfspaces).argMin();
     }
+
+    /**
+     * The projection onto this polyhedron together with statistics about how
+     * the algorithm found it.
+     *
+     * @param p the point being projected.
+     * @return
+     */
+    public Solution<Point> projSolution(Point p) {
+        if (!usesActiveSet()) return projector().solve(p);
+        RnPolyhedron poly = activeSetPolyhedron();
+        Solution<Point> solution = new GoldfarbIdnani<>(p, poly).setExecutionPolicy(policy).solve();
+        solution.getStatistics().setFacesPruned(size() - poly.size());
+        return solution;
+    }
     
+    /**
+     * The projections of many points onto this polyhedron. The work is shared
+     * between cores, and if CoupRliec is used all the projections use the
+     * same saved affine spaces.
+     *
+     * @param points each row is a point to be projected.
+     * @return a matrix whose rows are the projections of the rows of points.
+     */
+    public Matrix projAll(Matrix points) {
+        if (!usesActiveSet()) return projector().projAll(points);
+
+        PointD[] projections = new PointD[points.rows()];
+        long work = (long) points.rows() * size() * points.cols();
+        return policy.run(() -> {
+            policy.apply(IntStream.range(0, points.rows()), work).forEach(i -> {
+                Point proj = projActiveSet(points.row(i));
+                projections[i] = proj == null ? new PointD(points.cols(), j -> Double.NaN) : proj.asDense();
+            });
+            return MatrixDense.fromRows(projections);
+        });
+    }
+
+    /**
+     * Uses the dual active set method of Goldfarb and Idnani to find the
+     * projection. This is polynomial in the number of half spaces.
+     *
+     * @param p
+     * @return null if the polyhedron is empty.
+     */
+    public Point projActiveSet(Point p) {
+        return new GoldfarbIdnani<>(p, activeSetPolyhedron()).setExecutionPolicy(policy).solve().argMin();
+    }
+
+    /**
+     * The polyhedron the active set method projects onto. The reduced
+     * polyhedron is used if it has already been found, but it isn't found
+     * just for the active set method, which handles redundant half spaces
+     * well.
+     *
+     * @return
+     */
+    private RnPolyhedron activeSetPolyhedron() {
+        RnPolyhedron r = reduced;
+        return removeRedundant && r != null ? r : this;
+    }
+
+    /**
+     * A copy of this polyhedron for the CoupRliec solvers, which sort the
+     * half spaces they're given. Sorting the copy leaves the order of this
+     * polyhedron's half spaces, and the rows of its constraint matrix, alone.
+     * The copy shares the constraint matrix, which it only uses for
+     * membership tests.
+     *
+     * @return
+     */
+    private RnPolyhedron solverPolyhedron() {
+        RnPolyhedron poly = new RnPolyhedron(new ArrayList<>(halfspaces), constraints());
+        poly.setEpsilon(epsilon);
+        return poly;
+    }
+
     /**
      * Uses the CoupRleic standard algorithm to compute the projection
      * @param p
      * @return 
      */
     public Point projCoupRleic(Point p){
-        return new CoupRliec<>(new RnAffineProjection(p), halfspaces).argMin();
+        return new CoupRliec<>(new RnAffineProjection(p), solverPolyhedron())
+                .setExecutionPolicy(policy).solve().argMin();
     }
     /**
      * Uses the variation utilizing a partial ordering on the CoupRleic algorithm
@@ -443,7 +940,8 @@ public class RnPolyhedron extends Polyhedron<Point>{
      * @return 
      */
     public Point projCoupRliecOrderedHalfSpaces(Point p) {
-        return new CoupRliecOrderedHalfSpaces<>(new RnAffineProjection(p), halfspaces).argMin();
+        return new CoupRliecOrderedHalfSpaces<>(new RnAffineProjection(p), solverPolyhedron())
+                .setExecutionPolicy(policy).solve().argMin();
     }
     /**
      * Uses the variation utilizing a partial ordering on the CoupRleic algorithm
@@ -452,25 +950,25 @@ public class RnPolyhedron extends Polyhedron<Point>{
      * @return 
      */
     public Point projCoupRliecPointMethod(Point p) {
-        return new CoupRliecPointMethod(new RnAffineProjection(p), halfspaces).argMin();
+        return new CoupRliecPointMethod(new RnAffineProjection(p), solverPolyhedron())
+                .setExecutionPolicy(policy).solve().argMin();
     }
 
     /**
-     * A random non empty polytope that contains the given sphere centered at the origin
+     * A random non empty polytope that contains the given sphere centered at the origin.
+     * Its randomness all comes from PointD.rand, so seeding that repeats it.
      * @param numFaces
      * @param radius
      * @param dim
      * @return 
      */
     public static RnPolyhedron randomNonEmpty(int numFaces, double radius, int dim) {
-        Random rand = new Random();
-
         RnPolyhedron poly = new RnPolyhedron();
         IntStream.range(0, numFaces).forEach(i -> {
 
             PointD random = PointD.uniformBoundedRand(new PointD(dim), radius);
 
-            random = random.mult(radius * (rand.nextDouble() + 1) / random.magnitude());
+            random = random.mult(radius * (PointD.rand.nextDouble() + 1) / random.magnitude());
 
             poly.add(new HalfSpace<Point>(random, random));
         });
@@ -1,7 +1,6 @@
 package Hilbert;
 
-import Convex.ASKeys.ASKey;
-import Convex.ASKeys.ASKeyPConeRI;
+import Convex.ASKeys.FaceKey;
 import Matricies.MatrixDense;
 import Matricies.Point;
 import Matricies.PointD;
@@ -11,9 +10,10 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import tools.ArgMinContainer;
+import tools.BoundedCache;
+import tools.CancellationToken;
 
 /**
  * This method recursively checks the supercones of the given cone.
@@ -22,18 +22,37 @@ import tools.ArgMinContainer;
  */
 public class GeneratingPCone extends PCone<Point> {
 
-    private final ArrayList<ConcurrentHashMap<ASKey, GeneratingPCone>> memoization;
+    private final BoundedCache<FaceKey, GeneratingPCone> memoization;
     private final Polyhedron<Point> poly;
     private boolean meetsSufficient = false;
 
-    public GeneratingPCone(StrictlyConvexFunction<Point> f, List<HalfSpace<Point>> hs, ArrayList<ConcurrentHashMap<ASKey, GeneratingPCone>> memoization, Polyhedron<Point> poly) {
-        super(f, hs);
+    /**
+     * The constructor
+     *
+     * @param f the function being optimized.
+     * @param faces the indices in poly of the half spaces of this cone.
+     * @param memoization the cones that have already been generated. A cone
+     * that has been evicted is generated again when it's needed.
+     * @param poly the polyhedron being optimized over.
+     */
+    public GeneratingPCone(StrictlyConvexFunction<Point> f, int[] faces, BoundedCache<FaceKey, GeneratingPCone> memoization, Polyhedron<Point> poly) {
+        super(f, Arrays.stream(faces).mapToObj(poly::getHS).collect(Collectors.toList()), faces);
         this.memoization = memoization;
         this.poly = poly;
     }
 
-    public GeneratingPCone(StrictlyConvexFunction<Point> f, Set<HalfSpace<Point>> hs, ArrayList<ConcurrentHashMap<ASKey, GeneratingPCone>> memoization, Polyhedron<Point> poly) {
-        this(f, new ArrayList<>(hs), memoization, poly);
+    /**
+     * A supercone generated from another generating P-cone.
+     *
+     * @param generator the P-cone this one is generated from.
+     * @param hs the halfspaces of the new P-cone.
+     * @param faces the indices of the half spaces in poly.
+     * @param key the key made from faces.
+     */
+    private GeneratingPCone(GeneratingPCone generator, List<HalfSpace<Point>> hs, int[] faces, FaceKey key) {
+        super(generator, hs, faces, key);
+        this.memoization = generator.memoization;
+        this.poly = generator.poly;
     }
 
     /**
@@ -61,13 +80,19 @@ public class GeneratingPCone extends PCone<Point> {
      */
     private GeneratingPCone immediatSuperCone(int i) {
         
-        ASKeyPConeRI key = new ASKeyPConeRI(this, i);
-        GeneratingPCone pCone = memoization.get(key.coDim()).get(key);
-        if (pCone != null) return pCone;
+        FaceKey superKey = key.without(faces[i]);
+        GeneratingPCone pCone = memoization.getIfPresent(superKey);
+        if (pCone != null) {
+            if (stats != null) stats.cacheHit();
+            return pCone;
+        }
+        if (stats != null) stats.cacheMiss();
+        
+        int[] superFaces = new int[faces.length - 1];
+        System.arraycopy(faces, 0, superFaces, 0, i);
+        System.arraycopy(faces, i + 1, superFaces, i, faces.length - i - 1);
         
-        GeneratingPCone generated = new GeneratingPCone(f, withoutHS(i), memoization, poly);
-        memoization.get(key.coDim()).put(key, generated);
-        return generated;
+        return memoization.putIfAbsent(superKey, new GeneratingPCone(this, withoutHS(i), superFaces, superKey));
     }
 
     protected ArgMinContainer<Point> meetsNecesary(GeneratingPCone superCone, int i) {
@@ -82,19 +107,27 @@ public class GeneratingPCone extends PCone<Point> {
 
     /**
      * This function uses recursion and memomization to find the optimal point
-     * over this PCone
+     * over this PCone. If the minimum is in the polyhedron, it's the minimum
+     * over the polyhedron, and the search is cancelled with it.
      *
      * @return
+     * @throws CancellationToken.Cancelled if the search has been cancelled.
      */
     public ArgMinContainer<Point> min() {
+        throwIfCancelled();
         if (isAllSpace()) savedArgMin = allSpaceArgMin();
 
         savedArgMin = argMin(
-                intStream().parallel().mapToObj(i -> meetsNecesary(immediatSuperCone(i), i))
+                policy.apply(intStream(), work() * numHalfSpaces()).mapToObj(i -> meetsNecesary(immediatSuperCone(i), i))
         );
 
-        if (!meetsSufficient && poly.hasElement(savedArgMin.argMin()))
-            meetsSufficient = true;
+        if (!meetsSufficient) {
+            if (stats != null && savedArgMin.meetsNecCrti()) stats.sufficientCriteriaCheck();
+            if (savedArgMin.argMin() != null && poly.hasElement(savedArgMin.argMin())) {
+                meetsSufficient = true;
+                if (cancellation != null) cancellation.cancel(savedArgMin.argMin());
+            }
+        }
 
         return savedArgMin;
     }
@@ -110,6 +143,17 @@ public class GeneratingPCone extends PCone<Point> {
         return meetsSufficient;
     }
 
+    /**
+     * An estimate of the memory used by this cone: its faces, its arg min
+     * and apex, and the normals kept by its incremental arg min.
+     *
+     * @return the number of bytes.
+     */
+    public long bytes() {
+        long dim = isAllSpace() ? 0 : getHS(0).dim();
+        return 128 + 16L * numHalfSpaces() + 8 * dim * (2 + numHalfSpaces());
+    }
+
     /**
      * A polhedral cone with no half spaces, this is the entire hilbert space.
      *
@@ -118,8 +162,8 @@ public class GeneratingPCone extends PCone<Point> {
      * @param poly
      * @return
      */
-    public static GeneratingPCone allSpace(StrictlyConvexFunction<Point> f, ArrayList<ConcurrentHashMap<ASKey, GeneratingPCone>> memoization, Polyhedron<Point> poly) {
-        return new GeneratingPCone(f, new ArrayList<>(0), memoization, poly);
+    public static GeneratingPCone allSpace(StrictlyConvexFunction<Point> f, BoundedCache<FaceKey, GeneratingPCone> memoization, Polyhedron<Point> poly) {
+        return new GeneratingPCone(f, new int[0], memoization, poly);
     }
 
     private Point point;
@@ -60,7 +60,7 @@ public class HalfSpace<Vec extends Vector<Vec>> implements ConvexSet<Vec>{
     
     @Override
     public boolean hasElement(Vec x){
-        return boundry.above(x) || boundry.hasElement(x);
+        return boundry.aboveOrContains(x);
     }
     
     /**
@@ -78,13 +78,13 @@ public class HalfSpace<Vec extends Vector<Vec>> implements ConvexSet<Vec>{
      * @return 
      */
     public boolean interiorHasElement(Vec x, double epsilon){
-        return !boundry.hasElement(x, epsilon) && boundry.above(x);
+        return boundry.above(x, epsilon);
     }
     
     
     @Override
     public boolean hasElement(Vec x, double epsilon){
-        return boundry.above(x) || boundry.hasElement(x, epsilon);
+        return boundry.aboveOrContains(x, epsilon);
     }
     
     
@@ -120,7 +120,7 @@ public class HalfSpace<Vec extends Vector<Vec>> implements ConvexSet<Vec>{
      * @returna  the plane that makes up the surface of this halfspace.
      * This is the actual plane, so mess with it at your peril.
      */
-    public Plane boundary(){
+    public Plane<Vec> boundary(){
         return boundry;
     }
 
@@ -131,7 +131,7 @@ public class HalfSpace<Vec extends Vector<Vec>> implements ConvexSet<Vec>{
 
     @Override
     public Vec proj(Vec x) {
-        if(hasElement(x) || boundry.hasElement(x)) return x;
+        if(hasElement(x)) return x;
         return boundry.proj(x);
     }
     
@@ -0,0 +1,28 @@
+package Hilbert;
+
+/**
+ * The arg min of a function over an affine space, kept in a form that can be
+ * restricted to one more plane without starting over. A P-cone is its
+ * supercone with one more face, so the arg min over its affine space can be
+ * found from its supercone's.
+ *
+ * @author Dov Neimand
+ * @param <Vec> the type of Hilbert space
+ */
+public interface IncrementalArgMin<Vec extends Vector<Vec>> {
+
+    /**
+     * The arg min over the intersection of this affine space and the plane.
+     *
+     * @param plane
+     * @return
+     */
+    public IncrementalArgMin<Vec> concat(Plane<Vec> plane);
+
+    /**
+     * The arg min over the affine space.
+     *
+     * @return null if the affine space is empty.
+     */
+    public Vec argMin();
+}
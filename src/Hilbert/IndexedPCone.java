@@ -1,5 +1,6 @@
 package Hilbert;
 
+import Convex.ASKeys.FaceKey;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -24,6 +25,22 @@ public class IndexedPCone<Vec extends Vector<Vec>> extends PCone<Vec>{
         indexOfLastHS = i;
     }
 
+    /**
+     * An indexed P-cone generated from another P-cone.
+     *
+     * @param generator the P-cone this one is generated from.
+     * @param hs a list of the halfspaces that intersect to make this
+     * @param faces the indices of the half spaces in the list of all the half
+     * spaces.
+     * @param key the key made from faces.
+     * @param i The index of the last half space in the list of all the half
+     * spaces.
+     */
+    protected IndexedPCone(PCone<Vec> generator, List<HalfSpace<Vec>> hs, int[] faces, FaceKey key, int i) {
+        super(generator, hs, faces, key);
+        indexOfLastHS = i;
+    }
+
     
     
     /**
@@ -1,7 +1,6 @@
 package Hilbert.Optimization;
 
-import Convex.ASKeys.ASKey;
-import Convex.ASKeys.ASKeyPCo;
+import Convex.ASKeys.FaceKey;
 import Hilbert.HalfSpace;
 import Hilbert.IndexedPCone;
 import Hilbert.PCone;
@@ -9,14 +8,21 @@ import Hilbert.Polyhedron;
 import Hilbert.StrictlyConvexFunction;
 import Hilbert.Vector;
 import java.awt.Choice;
-import java.util.Collection;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
 import tools.ArgMinContainer;
+import tools.CancellationToken;
 import tools.Combinatorics;
+import tools.ExecutionPolicy;
+import tools.HashDistribution;
+import tools.SolverStatistics;
 
 /**
  * The algorithm spelled out in Hilbert-Space Convex Optimization Utilizing
@@ -30,54 +36,286 @@ public class CoupRliec<Vec extends Vector<Vec>> {
     protected final StrictlyConvexFunction<Vec> f;
     protected final Polyhedron<Vec> poly;
 
+    /**
+     * What the algorithm does while it looks for the argmin.
+     */
+    protected final SolverStatistics stats;
+
+    /**
+     * Decides which streams are parallel and which pool they run on.
+     */
+    protected ExecutionPolicy policy = ExecutionPolicy.ADAPTIVE;
+
+    /**
+     * Cancelled with the arg min as soon as any worker finds it, so that the
+     * P-cones still being searched stop instead of running to completion.
+     */
+    protected final CancellationToken<Vec> cancellation = new CancellationToken<>();
+
+    /**
+     * The solution, once it has been found.
+     */
+    private Solution<Vec> solution;
+
+    /**
+     * The active set of a previous solution, whose P-cone is searched before
+     * any other. This is null for a cold start.
+     */
+    private List<HalfSpace<Vec>> warmStart;
+
     public CoupRliec(StrictlyConvexFunction<Vec> f, List<HalfSpace<Vec>> halfSpaces) {
-        this.f = f;
-        poly = new Polyhedron<>(halfSpaces);
+        this(f, new Polyhedron<>(halfSpaces));
     }
 
     public CoupRliec(StrictlyConvexFunction<Vec> f, Polyhedron<Vec> poly) {
         this.f = f;
         this.poly = poly;
+        stats = new SolverStatistics(poly.numHalfSpaces() == 0 ? 0 : numSeqentialIterations());
     }
     
     /**
      * This gives the total number of affine spaces.
      * @return 
      */
-    private int totallNumberOfAffineSpaces(){
-        int tot = 0;
+    private long totallNumberOfAffineSpaces(){
+        long tot = 0;
         for(int i = 0; i <= numSeqentialIterations(); i++)
-            tot += Combinatorics.choose(poly.numHalfSpaces(), i);
+            tot = Math.min(tot + Combinatorics.choose(poly.numHalfSpaces(), i), Long.MAX_VALUE / 2);
         return tot;
     }
 
     /**
-     * The percent of affine spaces the minimum value was computed over.
+     * The most a map of P-cones is sized for before anything is put in it.
+     * Maps that need to be bigger grow as P-cones are added.
+     */
+    public static final int MAX_INITIAL_CAPACITY = 1 << 12;
+
+    /**
+     * The initial capacity of a map that may hold the P-cones of the given
+     * codimension.
+     *
+     * @param coDim
+     * @return the number of P-cones of the codimension, but no more than
+     * MAX_INITIAL_CAPACITY.
+     */
+    protected int initialCapacity(int coDim) {
+        return (int) Math.min(Combinatorics.choose(poly.numHalfSpaces(), coDim), MAX_INITIAL_CAPACITY);
+    }
+
+    /**
+     * The percent of affine spaces the minimum value was computed over. The
+     * argmin is only computed if it hasn't been already.
      * @return 
      */
     public double fracAffineSpacesChecked() {
-        argMin();
-        return (double)numAffineSpacesChecked/totallNumberOfAffineSpaces();
+        if (solution == null) solve();
+        return (double)stats.sufficientCriteriaChecks()/totallNumberOfAffineSpaces();
+    }
+
+    /**
+     * Finds the arg min over the polyhedron together with its active set and
+     * statistics about how it was found. If a warm start was set, the P-cones
+     * near it are searched first. If the execution policy has a dedicated
+     * pool, the search runs on it.
+     *
+     * @return
+     */
+    public Solution<Vec> solve() {
+        Vec argMin = policy.run(() -> {
+            Vec warm = warmStartArgMin();
+            return warm != null ? warm : argMin();
+        });
+        return solution = new Solution<>(argMin, activeSet(argMin), stats);
+    }
+
+    /**
+     * The half spaces whose boundaries contain the point, to within their
+     * tolerance.
+     *
+     * @param x
+     * @return an empty list if x is null.
+     */
+    protected List<HalfSpace<Vec>> activeSet(Vec x) {
+        if (x == null) return new ArrayList<>(0);
+        return poly.stream()
+                .filter(hs -> hs.onSurface(x, hs.boundary().tolerance))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Starts the search from the active set of the solution to a nearby
+     * problem, as when the points of a trajectory are projected one after
+     * the other. The P-cone of the active set is checked first, then its
+     * immediate supercones, then the P-cones with one more face. The full
+     * search is only run if none of them have the minimum over the
+     * polyhedron.
+     *
+     * @param activeSet the active set of a previous solution, see
+     * Solution.activeSet(). Half spaces that aren't in this polyhedron are
+     * ignored. Null for a cold start.
+     * @return this
+     */
+    public CoupRliec<Vec> setWarmStart(List<HalfSpace<Vec>> activeSet) {
+        this.warmStart = activeSet;
+        return this;
+    }
+
+    /**
+     * The arg min found from the P-cones near the warm start.
+     *
+     * @return null if there is no warm start or none of the P-cones near it
+     * have the minimum over the polyhedron.
+     */
+    protected Vec warmStartArgMin() {
+        if (warmStart == null || poly.numHalfSpaces() == 0) return null;
+        int[] faces = warmStart.stream().mapToInt(poly.getHalfspaces()::indexOf)
+                .filter(i -> i >= 0).distinct().sorted().toArray();
+        if (faces.length == 0 || faces.length > numSeqentialIterations()) return null;
+
+        Map<FaceKey, PCone<Vec>> cones = new HashMap<>();
+        PCone<Vec> active = warmCone(faces, cones);
+        if (warmSuffCrit(active)) return warmArgMin(active);
+
+        for (int i = 0; i < faces.length; i++) {
+            PCone<Vec> superCone = cones.get(active.getKey().without(faces[i]));
+            if (warmSuffCrit(superCone)) return warmArgMin(superCone);
+        }
+
+        if (faces.length == numSeqentialIterations()) return null;
+        for (int j = 0; j < poly.numHalfSpaces(); j++) {
+            if (active.getKey().contains(j)) continue;
+            int[] subFaces = Arrays.copyOf(faces, faces.length + 1);
+            subFaces[faces.length] = j;
+            Arrays.sort(subFaces);
+            PCone<Vec> subCone = warmCone(subFaces, cones);
+            if (warmSuffCrit(subCone)) return warmArgMin(subCone);
+        }
+        return null;
+    }
+
+    /**
+     * The P-cone of the given faces with its minimum found. Its supercones
+     * are found first, recursively, and all of them are saved in cones.
+     *
+     * @param faces the indices of the faces in increasing order.
+     * @param cones the P-cones that have been found, by key.
+     * @return
+     */
+    private PCone<Vec> warmCone(int[] faces, Map<FaceKey, PCone<Vec>> cones) {
+        FaceKey key = FaceKey.of(faces);
+        PCone<Vec> pCone = cones.get(key);
+        if (pCone != null) return pCone;
+
+        if (faces.length == 0) {
+            pCone = IndexedPCone.allSpace(f);
+            pCone.setStatistics(stats);
+            pCone.setExecutionPolicy(policy);
+            stats.affineSpaceGenerated(0);
+        } else {
+            int last = faces[faces.length - 1];
+            pCone = warmCone(Arrays.copyOf(faces, faces.length - 1), cones).concat(poly.getHS(last), last);
+        }
+
+        for (int i = 0; i < faces.length - 1; i++) {
+            int[] superFaces = new int[faces.length - 1];
+            System.arraycopy(faces, 0, superFaces, 0, i);
+            System.arraycopy(faces, i + 1, superFaces, i, faces.length - i - 1);
+            warmCone(superFaces, cones);
+        }
+
+        pCone.min(cones);
+        cones.put(key, pCone);
+        return pCone;
+    }
+
+    /**
+     * Is the minimum over a P-cone near the warm start in the polyhedron? If
+     * it is, it's the minimum over the polyhedron, since the P-cone contains
+     * the polyhedron.
+     *
+     * @param pCone
+     * @return
+     */
+    private boolean warmSuffCrit(PCone<Vec> pCone) {
+        Vec argMin = pCone.getSavedArgMin().argMin();
+        if (argMin == null) return false;
+        stats.sufficientCriteriaCheck();
+        return poly.hasElement(argMin);
+    }
+
+    /**
+     * Records that the warm start found the minimum.
+     *
+     * @param pCone the P-cone the minimum was found on.
+     * @return the minimum.
+     */
+    private Vec warmArgMin(PCone<Vec> pCone) {
+        stats.solvedAt(pCone.numHalfSpaces());
+        stats.solvedByWarmStart();
+        return pCone.getSavedArgMin().argMin();
+    }
+
+    /**
+     * Sets how the streams of the algorithm are run. The default is
+     * ExecutionPolicy.ADAPTIVE on the common pool.
+     *
+     * @param policy
+     * @return this
+     */
+    public CoupRliec<Vec> setExecutionPolicy(ExecutionPolicy policy) {
+        this.policy = policy;
+        return this;
+    }
+
+    /**
+     * How the streams of the algorithm are run.
+     *
+     * @return
+     */
+    public ExecutionPolicy getExecutionPolicy() {
+        return policy;
+    }
+
+    /**
+     * What the algorithm has done so far.
+     *
+     * @return
+     */
+    public SolverStatistics getStatistics() {
+        return stats;
     }
     
     
 
     /**
-     * The next set of affine spaces of the polyhedron of codimension i+1
+     * The number of P-cones of a level whose children are generated and
+     * searched together.
+     */
+    private int batchSize = 256;
+
+    /**
+     * Sets the number of P-cones of a level whose children are generated and
+     * searched together. Smaller batches find easy minimums sooner, bigger
+     * batches give parallel streams more to share.
      *
-     * @param prevCoDim the set of affine spaces of codimension i
-     * @return the set of affine spaces of the polyhedron of codim i
+     * @param batchSize
+     * @return this
      */
-    private Map<ASKey, PCone<Vec>> coDimPlusPlus(Collection<PCone<Vec>> prevCoDim) {
-        return prevCoDim.parallelStream()
-                .flatMap(pCone
-                        -> IntStream.range(pCone.getIndexOfLastHS() + 1, poly.numHalfSpaces())
-                        .mapToObj(i -> pCone.concat(poly.getHS(i), i))
-                ).collect(Collectors.toMap(
-                        pCone -> new ASKeyPCo(pCone),
-                        pCone -> pCone
-                )
-                );
+    public CoupRliec<Vec> setBatchSize(int batchSize) {
+        this.batchSize = Math.max(batchSize, 1);
+        return this;
+    }
+
+    /**
+     * The P-cones made from this one by adding a face with a greater index
+     * than its last.
+     *
+     * @param pCone
+     * @return
+     */
+    private Stream<PCone<Vec>> children(PCone<Vec> pCone) {
+        return IntStream.range(pCone.getIndexOfLastHS() + 1, poly.numHalfSpaces())
+                .mapToObj(i -> pCone.concat(poly.getHS(i), i));
     }
 
     /**
@@ -93,32 +331,74 @@ public class CoupRliec<Vec extends Vector<Vec>> {
     }
 
     /**
-     * Does this possible minimum meet the sufficient criteria.
+     * Does this possible minimum meet the sufficient criteria. If it does, the
+     * search is cancelled with it.
      *
      * @param posMin
-     * @return
+     * @return false if there is no minimum, which happens when the affine
+     * space of the P-cone is empty.
      */
     protected boolean suffCrit(ArgMinContainer<Vec> posMin) {
-        if(posMin.meetsNecCrti()) numAffineSpacesChecked++;
-        return posMin.meetsNecCrti() && poly.hasElement(posMin.argMin());
+        if (!posMin.meetsNecCrti() || posMin.argMin() == null) return false;
+        stats.sufficientCriteriaCheck();
+        if (!poly.hasElement(posMin.argMin())) return false;
+        cancellation.cancel(posMin.argMin());
+        return true;
     }
     
     /**
-     * Finds the minimum if it exists for all the affine spaces of a given
-     * codimension.
+     * Generates the P-cones of the next codimension a batch at a time, and
+     * finds the minimum over each as it's generated. The search stops as
+     * soon as a minimum meets the sufficient criteria, so the rest of the
+     * level is never generated, and the P-cones already being searched by
+     * other workers are abandoned.
      *
      * @param prevLevel all the affine spaces at the codimension - 1.
-     * @param level all the affine spaces at the given codimension.
+     * @param level the P-cones generated are put here. If no minimum is found
+     * it holds the whole level, which are the supercones of the next one.
+     * @param coDim the codimension of level.
      * @return null if there is no minimum over the polyhedron at this level,
      * the argmin otherwise.
      */
-    private ArgMinContainer<Vec> posMinOnLevel(Map<ASKey, PCone<Vec>> prevLevel, Map<ASKey,PCone<Vec>> level) {
+    private ArgMinContainer<Vec> posMinOnLevel(Map<FaceKey, PCone<Vec>> prevLevel, Map<FaceKey, PCone<Vec>> level, int coDim) {
+
+        List<PCone<Vec>> prev = new ArrayList<>(prevLevel.values());
+        int numFaces = poly.numHalfSpaces();
+
+        for (int from = 0; from < prev.size(); from += batchSize) {
+            List<PCone<Vec>> batch = prev.subList(from, Math.min(from + batchSize, prev.size()));
+            long work = levelWork(batch.size() * (numFaces - coDim + 1), coDim);
+
+            ArgMinContainer<Vec> min;
+            try {
+                min = policy.apply(batch.stream(), work)
+                        .flatMap(this::children)
+                        .map(pCone -> {
+                            level.put(pCone.getKey(), pCone);
+                            return pCone.min(prevLevel);
+                        })
+                        .filter(aMin -> suffCrit(aMin))
+                        .findAny()
+                        .orElse(null);
+            } catch (CancellationToken.Cancelled ex) {
+                return new ArgMinContainer<>(cancellation.result(), true);
+            }
+            if (min != null) return min;
+        }
+        return null;
+    }
 
-        return level.values().parallelStream()
-                .map(pCone -> pCone.min(prevLevel))
-                .filter(aMin -> suffCrit(aMin))
-                .findAny()
-                .orElse(null);
+    /**
+     * An estimate of the work done finding the minimums over the P-cones of a
+     * level. Each P-cone checks its supercones and may project onto its
+     * affine space.
+     *
+     * @param numPCones the number of P-cones on the level.
+     * @param coDim the codimension of the level.
+     * @return
+     */
+    protected long levelWork(int numPCones, int coDim) {
+        return (long) numPCones * dim() * (coDim + 1);
     }
 
     /**
@@ -130,32 +410,45 @@ public class CoupRliec<Vec extends Vector<Vec>> {
         return Math.min(poly.numHalfSpaces(), dim());
     }
 
-    /**
-     * This variable is meant to track the number of affine spaces checked when the
-     * algorithm is fun.
-     */
-    private int numAffineSpacesChecked = 0;
     /**
      * Finds the arg min over the polyhedron.
      *
      * @return
      */
     public Vec argMin() {
+        if (cancellation.isCancelled()) return cancellation.result();
 
-        IndexedPCone pConeHilb = IndexedPCone.allSpace(f);
+        long start = System.nanoTime();
+        IndexedPCone<Vec> pConeHilb = IndexedPCone.allSpace(f);
+        pConeHilb.setStatistics(stats);
+        pConeHilb.setExecutionPolicy(policy);
+        pConeHilb.setCancellation(cancellation);
+        stats.affineSpaceGenerated(0);
 
-        Map<ASKey, PCone<Vec>> pConeCoDimI = new HashMap<>(), pConeCoDimeIPlusOne;
-        pConeCoDimI.put(new ASKeyPCo(pConeHilb), pConeHilb);
+        Map<FaceKey, PCone<Vec>> pConeCoDimI = new HashMap<>(), pConeCoDimeIPlusOne;
+        pConeCoDimI.put(pConeHilb.getKey(), pConeHilb);
 
         ArgMinContainer<Vec> min = pConeHilb.min(null);
-        if (suffCrit(min)) return min.argMin();
+        stats.levelTime(0, System.nanoTime() - start);
+        if (suffCrit(min)) {
+            stats.solvedAt(0);
+            return min.argMin();
+        }
 
         int n = numSeqentialIterations();
 
         for (int i = 0; i < n; pConeCoDimI = pConeCoDimeIPlusOne, i++) {
-            pConeCoDimeIPlusOne = coDimPlusPlus(pConeCoDimI.values());
-            min = posMinOnLevel(pConeCoDimI, pConeCoDimeIPlusOne);
-            if (min != null) return min.argMin();
+            start = System.nanoTime();
+            pConeCoDimeIPlusOne = new ConcurrentHashMap<>(initialCapacity(i + 1));
+            min = posMinOnLevel(pConeCoDimI, pConeCoDimeIPlusOne, i + 1);
+            stats.levelTime(i + 1, System.nanoTime() - start);
+            if (stats.tracksHashDistribution())
+                stats.hashDistribution(i + 1, HashDistribution.ofConcurrent(
+                        pConeCoDimeIPlusOne.keySet(), initialCapacity(i + 1)));
+            if (min != null) {
+                stats.solvedAt(i + 1);
+                return min.argMin();
+            }
         }
         return null;
 
@@ -1,9 +1,9 @@
 package Hilbert.Optimization;
 
-import Convex.ASKeys.ASKey;
-import Convex.ASKeys.ASKeyPCo;
+import Convex.ASKeys.FaceKey;
 import Hilbert.HalfSpace;
 import Hilbert.PCone;
+import Hilbert.Polyhedron;
 import Hilbert.StrictlyConvexFunction;
 import Hilbert.Vector;
 import java.util.*;
@@ -11,7 +11,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
-import tools.Combinatorics;
+import tools.CancellationToken;
+import tools.ExecutionPolicy;
+import tools.HashDistribution;
 
 /**
  * We accelerate the CoupRleic algorithm by ordering the half spaces and searching up before out.
@@ -21,8 +23,34 @@ import tools.Combinatorics;
  */
 public class CoupRliecOrderedHalfSpaces<Vec extends Vector<Vec>> extends CoupRliec<Vec> {
 
-    protected final ArrayList<Map<ASKey, PCone<Vec>>> affSpacesCoDimI;
+    /**
+     * The P-cones found so far, by codimension. These maps are not bounded:
+     * every cone of a level is looked up as a supercone of the cones of the
+     * next, so none can be dropped while the solver runs. A cone keeps its
+     * faces, its arg min and the key of its affine space. The projections
+     * onto the affine spaces, which take up most of the memory, are kept in
+     * the bounded cache of the PolyhedronProjector that made the solver.
+     */
+    protected final ArrayList<Map<FaceKey, PCone<Vec>>> affSpacesCoDimI;
     
+    /**
+     * Have the half spaces already been sorted by the caller?
+     */
+    private boolean halfSpacesSorted = false;
+
+    /**
+     * A point known to be in the polyhedron. Half spaces whose boundaries
+     * are farther than it can't be active at the minimum, so they're left out
+     * of the search. This may be null.
+     */
+    private Vec feasiblePoint;
+
+    /**
+     * How much farther than the feasible point a boundary must be, relative
+     * to the distance to the feasible point, to be left out of the search.
+     */
+    public static final double PRUNING_TOLERANCE = 1e-9;
+
 
     /**
      * The constructor
@@ -30,81 +58,177 @@ public class CoupRliecOrderedHalfSpaces<Vec extends Vector<Vec>> extends CoupRli
      * @param halfSpaces the half spaces optimized over
      */
     public CoupRliecOrderedHalfSpaces(StrictlyConvexFunction<Vec> f, List<HalfSpace<Vec>> halfSpaces) {
-        super(f, halfSpaces);
+        this(f, new Polyhedron<>(halfSpaces));
+    }
+
+    /**
+     * The constructor
+     * @param f the function to optimize
+     * @param poly the polyhedron optimized over. Its half spaces are sorted in
+     * place unless setHalfSpacesSorted is called.
+     */
+    public CoupRliecOrderedHalfSpaces(StrictlyConvexFunction<Vec> f, Polyhedron<Vec> poly) {
+        super(f, poly);
         affSpacesCoDimI = new ArrayList<>(numSeqentialIterations() + 1);
         int n = numSeqentialIterations();
         for (int i = 0; i < n + 1; i++)
-            affSpacesCoDimI.add(new HashMap<>(Combinatorics.choose(halfSpaces.size(), i)));
-        PCone allSpace = PCone.allSpace(f);
+            affSpacesCoDimI.add(new HashMap<>(initialCapacity(i)));
+        long start = System.nanoTime();
+        PCone<Vec> allSpace = PCone.allSpace(f);
+        allSpace.setStatistics(stats);
+        allSpace.setCancellation(cancellation);
+        stats.affineSpaceGenerated(0);
         allSpace.min(affSpacesCoDimI.get(0));
-        affSpacesCoDimI.get(0).put(new ASKeyPCo(allSpace), allSpace);
+        stats.levelTime(0, System.nanoTime() - start);
+        affSpacesCoDimI.get(0).put(allSpace.getKey(), allSpace);
     }
 
     /**
      * Generates the next outer iteration of PCones.  If the current iteration
      * is all teh PCones of codimension i, then this will return all the 
-     * PCones of codimension i+1.
+     * PCones of codimension i+1. Each new PCone is checked against the
+     * sufficient criteria as soon as its minimum is found, and the first one
+     * that meets them cancels the search.
      * @param coDim the codimension of the current level of PCones, not the next level.
-     * @param hs The half space most recently added to the list of half spaces.
+     * @param hsIndex The index of the half space most recently added to the list of half spaces.
      * @param superConeAddOns the list of supercones that are subets of the halfspace hs
      * @return The next tear of PCones that have hs in them.
+     * @throws CancellationToken.Cancelled if one of the new PCones, or a
+     * PCone being searched by another worker, has the minimum over the
+     * polyhedron.
      */
-    public Map<ASKey, PCone<Vec>> nextPConeTear(int coDim, HalfSpace<Vec> hs, Map<ASKey, PCone<Vec>> superConeAddOns){
-        Map<ASKey, PCone<Vec>> superCones = new ConcurrentHashMap<>(superConeAddOns.size() + affSpacesCoDimI.get(coDim).size());
+    public Map<FaceKey, PCone<Vec>> nextPConeTear(int coDim, int hsIndex, Map<FaceKey, PCone<Vec>> superConeAddOns){
+        HalfSpace<Vec> hs = poly.getHS(hsIndex);
+        Map<FaceKey, PCone<Vec>> superCones = new ConcurrentHashMap<>(superConeAddOns.size() + affSpacesCoDimI.get(coDim).size());
         superCones.putAll(affSpacesCoDimI.get(coDim));
         superCones.putAll(superConeAddOns);
         
-        return affSpacesCoDimI.get(coDim).values().parallelStream().map(pCone -> {
-                PCone<Vec> concat = pCone.concat(hs);
-                concat.min(superCones);
+        Collection<PCone<Vec>> prevLevel = affSpacesCoDimI.get(coDim).values();
+        return policy.apply(prevLevel.stream(), levelWork(prevLevel.size(), coDim + 1)).map(pCone -> {
+                PCone<Vec> concat = pCone.concat(hs, hsIndex);
+                if (suffCrit(concat.min(superCones))) cancellation.throwIfCancelled();
                 return concat;
-            }).collect(Collectors.toMap(pCone -> new ASKeyPCo(pCone), pCone -> pCone));
+            }).collect(Collectors.toMap(pCone -> pCone.getKey(), pCone -> pCone));
     }
     
     /**
      * Pass the next half space into here to examine the intersections of this
      * half space and all the ones studied so far.
-     * @param hs the half space being added
+     * @param hs the index of the half space being added
      * @return the optimal point in the polyhedron if it can be found by adding
      * this half space to those already studied.
      */
-    private Vec nextHalfSpace(HalfSpace<Vec> hs) {
+    private Vec nextHalfSpace(int hs) {
 
         int n = numSeqentialIterations();
-        Map<ASKey, PCone<Vec>> nextAddOnPcones = nextPConeTear(0, hs, new HashMap<>()), addOnPCones;
+        Map<FaceKey, PCone<Vec>> addOnPCones = new HashMap<>();
         
-        for (int i = 1; i <= n; i++) {
-            addOnPCones = nextAddOnPcones;
-            PCone<Vec> minCone = addOnPCones.values().parallelStream().filter(pCone -> suffCrit(pCone.getSavedArgMin())).findAny().orElse(null);
-            if(minCone != null) return minCone.getSavedArgMin().argMin();
-            nextAddOnPcones = nextPConeTear(i, hs, addOnPCones);
+        for (int i = 0; i < n; i++) {
+            long start = System.nanoTime();
+            Map<FaceKey, PCone<Vec>> nextAddOnPcones;
+            try {
+                nextAddOnPcones = nextPConeTear(i, hs, addOnPCones);
+            } catch (CancellationToken.Cancelled ex) {
+                stats.levelTime(i + 1, System.nanoTime() - start);
+                stats.solvedAt(i + 1);
+                return cancellation.result();
+            }
             affSpacesCoDimI.get(i).putAll(addOnPCones);
+            addOnPCones = nextAddOnPcones;
+            stats.levelTime(i + 1, System.nanoTime() - start);
         }
+        affSpacesCoDimI.get(n).putAll(addOnPCones);
         return null;
     }
 
     /**
-     * Sorts the half spaces by -f.min(hs.boundary())
-     * @param argMinHilb 
+     * Tells the algorithm that the half spaces it was given are already sorted
+     * by -f.min(hs.boundary()), with the half spaces whose interiors contain
+     * the unconstrained argmin at the end, so it doesn't need to sort them.
+     * @param halfSpacesSorted
+     * @return this
+     */
+    public CoupRliecOrderedHalfSpaces<Vec> setHalfSpacesSorted(boolean halfSpacesSorted) {
+        this.halfSpacesSorted = halfSpacesSorted;
+        return this;
+    }
+
+    /**
+     * Sets how the streams of the algorithm are run, including those of the
+     * P-cone of the whole space that was made by the constructor.
+     *
+     * @param policy
+     * @return this
+     */
+    @Override
+    public CoupRliecOrderedHalfSpaces<Vec> setExecutionPolicy(ExecutionPolicy policy) {
+        super.setExecutionPolicy(policy);
+        affSpacesCoDimI.get(0).values().forEach(pCone -> pCone.setExecutionPolicy(policy));
+        return this;
+    }
+
+    /**
+     * Sets a point known to be in the polyhedron. The minimum over the
+     * polyhedron is no greater than f at that point, so a half space whose
+     * boundary has a greater minimum can't be active, and is left out of the
+     * search. The polyhedron is the same with or without it.
+     * @param feasiblePoint a point in the polyhedron, or null to search all
+     * the half spaces.
+     * @return this
+     */
+    public CoupRliecOrderedHalfSpaces<Vec> setFeasiblePoint(Vec feasiblePoint) {
+        this.feasiblePoint = feasiblePoint;
+        return this;
+    }
+
+    /**
+     * Sorts the half spaces by -f.min(hs.boundary()), unless they've already
+     * been sorted, and moves those that can't be active to the end. The
+     * minimum over each boundary is only computed once.
+     * @param argMinHilb
+     * @return the number of half spaces that might be active, which are at
+     * the start of the list.
      */
-    private void sortHalfSpaces(Vec argMinHilb){
+    private int sortHalfSpaces(Vec argMinHilb){
+        List<HalfSpace<Vec>> halfSpaces = poly.getHalfspaces();
+        double bound = feasiblePoint == null ? Double.POSITIVE_INFINITY
+                : f.apply(feasiblePoint) * (1 + PRUNING_TOLERANCE) + PRUNING_TOLERANCE;
+
+        Map<HalfSpace<Vec>, Double> boundaryMin = new IdentityHashMap<>(halfSpaces.size());
+        for (HalfSpace<Vec> hs : halfSpaces) boundaryMin.put(hs, f.min(hs.boundary()));
         
-        poly.getHalfspaces().sort(Comparator.comparingDouble(hs -> {
+        Comparator<HalfSpace<Vec>> order = Comparator.comparing(hs -> boundaryMin.get(hs) > bound);
+        if (!halfSpacesSorted) order = order.thenComparingDouble(hs -> {
             if(hs.interiorHasElement(argMinHilb)) return Double.POSITIVE_INFINITY;
-            return -f.min(hs.boundary());
-        }));
+            return -boundaryMin.get(hs);
+        });
+        halfSpaces.sort(order);
+
+        int numFaces = (int) halfSpaces.stream().filter(hs -> boundaryMin.get(hs) <= bound).count();
+        stats.setFacesPrunedByDistance(halfSpaces.size() - numFaces);
+        return numFaces;
     }
     
     @Override
     public Vec argMin() {
+        if (cancellation.isCancelled()) return cancellation.result();
         Vec argMinHilb = f.ArgMin();
-        if(poly.hasElement(argMinHilb)) return argMinHilb;
-        sortHalfSpaces(argMinHilb);
-        for(HalfSpace<Vec> hs: poly.getHalfspaces()){
-            Vec min = nextHalfSpace(hs);
-            if(min != null) return min;
+        if(poly.hasElement(argMinHilb)) {
+            stats.solvedAt(0);
+            return argMinHilb;
         }
-        return null;
+        int numFaces = poly.numHalfSpaces();
+        if(!halfSpacesSorted || feasiblePoint != null) numFaces = sortHalfSpaces(argMinHilb);
+        Vec min = null;
+        for(int hs = 0; hs < numFaces && min == null; hs++)
+            min = nextHalfSpace(hs);
+        
+        if(stats.tracksHashDistribution())
+            for(int i = 0; i < affSpacesCoDimI.size(); i++)
+                stats.hashDistribution(i, new HashDistribution(
+                        affSpacesCoDimI.get(i).keySet(),
+                        initialCapacity(i)));
+        return min;
     }
     
 }
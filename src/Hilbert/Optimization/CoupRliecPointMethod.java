@@ -1,18 +1,22 @@
 package Hilbert.Optimization;
 
-import Convex.ASKeys.ASKey;
-import Convex.ASKeys.ASKeyPCo;
+import Convex.ASKeys.FaceKey;
 import Hilbert.GeneratingPCone;
 import Hilbert.HalfSpace;
+import Hilbert.Polyhedron;
 import Hilbert.StrictlyConvexFunction;
 import Matricies.Point;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Map;
 import java.util.stream.Collectors;
+import tools.BoundedCache;
+import tools.CancellationToken;
+import tools.CombinationSpliterator;
 import tools.Combinatorics;
+import tools.ExecutionPolicy;
+import tools.HashDistribution;
 
 /**
  *
@@ -20,7 +24,12 @@ import tools.Combinatorics;
  */
 public class CoupRliecPointMethod extends CoupRliec<Point> {
 
-    protected final ArrayList<ConcurrentHashMap<ASKey, GeneratingPCone>> memoization;
+    /**
+     * The P-cones that have been generated. When they take up too much
+     * memory the least recently used are evicted, and generated again if
+     * they're needed.
+     */
+    protected final BoundedCache<FaceKey, GeneratingPCone> memoization;
 
     /**
      * The constructor
@@ -29,39 +38,122 @@ public class CoupRliecPointMethod extends CoupRliec<Point> {
      * @param halfSpaces the half spaces optimized over
      */
     public CoupRliecPointMethod(StrictlyConvexFunction<Point> f, List<HalfSpace<Point>> halfSpaces) {
-        super(f, halfSpaces);
-        int n = numSeqentialIterations();
-        memoization = new ArrayList<>(n + 1);
+        this(f, new Polyhedron<>(halfSpaces));
+    }
+
+    /**
+     * The constructor
+     *
+     * @param f the function to optimize
+     * @param poly the polyhedron optimized over. An RnPolyhedron checks
+     * membership faster than a Polyhedron.
+     */
+    public CoupRliecPointMethod(StrictlyConvexFunction<Point> f, Polyhedron<Point> poly) {
+        this(f, poly, BoundedCache.DEFAULT_BYTES);
+    }
+
+    /**
+     * The constructor
+     *
+     * @param f the function to optimize
+     * @param poly the polyhedron optimized over.
+     * @param cacheBytes the most memory the generated P-cones may use.
+     */
+    public CoupRliecPointMethod(StrictlyConvexFunction<Point> f, Polyhedron<Point> poly, long cacheBytes) {
+        super(f, poly);
+        memoization = new BoundedCache<>(cacheBytes, GeneratingPCone::bytes);
 
-        for (int i = 0; i < n + 1; i++)
-            memoization.add(new ConcurrentHashMap<>(Combinatorics.choose(halfSpaces.size(), i)));
-        
         GeneratingPCone allSpace = GeneratingPCone.allSpace(f, memoization, poly);
+        allSpace.setStatistics(stats);
+        stats.affineSpaceGenerated(0);
         allSpace.min();
-        memoization.get(0).put(new ASKeyPCo(allSpace), allSpace);
+        memoization.putIfAbsent(allSpace.getKey(), allSpace);
+    }
+
+    /**
+     * The generated P-cones and how often they were found.
+     *
+     * @return
+     */
+    public BoundedCache<FaceKey, GeneratingPCone> getCache() {
+        return memoization;
+    }
+
+    /**
+     * Sets how the streams of the algorithm are run, including those of the
+     * P-cone of the whole space that was made by the constructor.
+     *
+     * @param policy
+     * @return this
+     */
+    @Override
+    public CoupRliecPointMethod setExecutionPolicy(ExecutionPolicy policy) {
+        super.setExecutionPolicy(policy);
+        GeneratingPCone allSpace = memoization.getIfPresent(FaceKey.EMPTY);
+        if (allSpace != null) allSpace.setExecutionPolicy(policy);
+        return this;
+    }
+
+    /**
+     * Records how the keys of the P-cones of each codimension in the cache
+     * are distributed over the buckets of a map, if the statistics are
+     * tracking that.
+     */
+    private void recordHashDistribution() {
+        if (!stats.tracksHashDistribution()) return;
+        Map<Integer, List<FaceKey>> byCoDim = memoization.keys().stream()
+                .collect(Collectors.groupingBy(FaceKey::size));
+        byCoDim.forEach((coDim, keys) -> stats.hashDistribution(coDim, new HashDistribution(keys)));
     }
 
     @Override
     public Point argMin() {
+        if (cancellation.isCancelled()) return cancellation.result();
 
         if (dim() < poly.numHalfSpaces()) {
+            long start = System.nanoTime();
+            long work = Math.min(Combinatorics.choose(poly.numHalfSpaces(), dim()), Integer.MAX_VALUE) * dim() * dim();
             GeneratingPCone[] pCones
-                    = Combinatorics.choose(poly.getHalfspaces(), dim())
-                            .map(hsList -> new GeneratingPCone(f, hsList, memoization, poly))
+                    = policy.apply(CombinationSpliterator.stream(poly.numHalfSpaces(), dim(), false), work)
+                            .map(faces -> {
+                                GeneratingPCone gpc = new GeneratingPCone(f, faces.clone(), memoization, poly);
+                                gpc.setStatistics(stats);
+                                gpc.setExecutionPolicy(policy);
+                                gpc.setCancellation(cancellation);
+                                stats.affineSpaceGenerated(dim());
+                                return gpc;
+                            })
                             .filter(p -> poly.hasElement(p.point()))
                             .sorted(Comparator.comparingDouble(cone -> f.apply(cone.point())))
                             .toArray(GeneratingPCone[]::new);
 
             for (GeneratingPCone gpc : pCones) {
-                if (gpc.getMeetsSufficient())
-                    return gpc.getSavedArgMin().argMin();
+                Point argMin;
+                try {
+                    if (gpc.getMeetsSufficient()) argMin = gpc.getSavedArgMin().argMin();
+                    else if (cancellation.isCancelled()) argMin = cancellation.result();
+                    else continue;
+                } catch (CancellationToken.Cancelled ex) {
+                    argMin = cancellation.result();
+                }
+                stats.levelTime(dim(), System.nanoTime() - start);
+                recordHashDistribution();
+                stats.solvedAt(gpc.numHalfSpaces());
+                return argMin;
             }
+            stats.levelTime(dim(), System.nanoTime() - start);
+            recordHashDistribution();
 
             System.out.println("Hilbert.Optimization.CoupRliecPointMethod.argMin()");
             System.out.println("Something went wrong.");
         }
 
-        return new CoupRliecOrderedHalfSpaces<>(f, poly.getHalfspaces()).argMin();
+        CoupRliecOrderedHalfSpaces<Point> ordered = new CoupRliecOrderedHalfSpaces<>(f, poly);
+        ordered.getStatistics().setTrackHashDistribution(stats.tracksHashDistribution());
+        ordered.setExecutionPolicy(policy);
+        Point argMin = ordered.argMin();
+        stats.add(ordered.getStatistics());
+        return argMin;
 
     }
 
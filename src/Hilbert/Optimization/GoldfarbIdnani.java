@@ -0,0 +1,243 @@
+package Hilbert.Optimization;
+
+import Hilbert.HalfSpace;
+import Hilbert.Polyhedron;
+import Hilbert.Vector;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.IntStream;
+import tools.ExecutionPolicy;
+import tools.SolverStatistics;
+
+/**
+ * The projection of a point onto a polyhedron with the dual active set method
+ * of Goldfarb and Idnani, A numerically stable dual method for solving
+ * strictly convex quadratic programs. It starts from the point itself, the
+ * minimum with no constraints, and adds the most violated half space to the
+ * active set one at a time, dropping half spaces whose multipliers would
+ * become negative. Each step is polynomial in the number of faces and the
+ * codimension of the active set, so polyhedra with many more faces than the
+ * CoupRliec algorithms can search are practical.
+ *
+ * @author Dov Neimand
+ * @param <Vec> the type of Hilbert space this is over
+ */
+public class GoldfarbIdnani<Vec extends Vector<Vec>> {
+
+    /**
+     * A normal whose component orthogonal to the normals of the active set is
+     * smaller than this, relative to its magnitude, is taken to be in their
+     * span.
+     */
+    public static final double DEPENDENCE_TOLERANCE = 1e-12;
+
+    /**
+     * The point being projected.
+     */
+    private final Vec y;
+
+    private final Polyhedron<Vec> poly;
+
+    /**
+     * What the algorithm does while it looks for the projection.
+     */
+    private final SolverStatistics stats;
+
+    /**
+     * Decides if the search for the most violated half space is parallel.
+     */
+    private ExecutionPolicy policy = ExecutionPolicy.ADAPTIVE;
+
+    /**
+     * The active set, the indices of the half spaces whose boundaries the
+     * current point is on.
+     */
+    private final List<Integer> active = new ArrayList<>();
+
+    /**
+     * The Lagrange multiplier of each half space in the active set.
+     */
+    private final List<Double> u = new ArrayList<>();
+
+    /**
+     * The constructor
+     *
+     * @param y the point to be projected.
+     * @param poly the polyhedron it's projected onto.
+     */
+    public GoldfarbIdnani(Vec y, Polyhedron<Vec> poly) {
+        this.y = y;
+        this.poly = poly;
+        stats = new SolverStatistics(poly.numHalfSpaces() == 0 ? 0
+                : Math.min(poly.numHalfSpaces(), y.dim()));
+    }
+
+    /**
+     * Sets how the search for the most violated half space is run.
+     *
+     * @param policy
+     * @return this
+     */
+    public GoldfarbIdnani<Vec> setExecutionPolicy(ExecutionPolicy policy) {
+        this.policy = policy;
+        return this;
+    }
+
+    /**
+     * Finds the projection together with its active set and statistics about
+     * how it was found.
+     *
+     * @return
+     */
+    public Solution<Vec> solve() {
+        Vec argMin = policy.run(this::argMin);
+        List<HalfSpace<Vec>> activeSet = new ArrayList<>(active.size());
+        if (argMin != null) active.forEach(i -> activeSet.add(poly.getHS(i)));
+        return new Solution<>(argMin, activeSet, stats);
+    }
+
+    /**
+     * How far the point is outside of a half space, over the magnitude of
+     * its normal.
+     *
+     * @param i the index of the half space.
+     * @param x
+     * @return a positive number if x is outside of the half space by more
+     * than its tolerance, and 0 otherwise.
+     */
+    private double violation(int i, Vec x) {
+        HalfSpace<Vec> hs = poly.getHS(i);
+        double excess = hs.normal().ip(x) - hs.boundary().b();
+        if (excess <= hs.boundary().tolerance) return 0;
+        return excess / hs.normal().norm();
+    }
+
+    /**
+     * The half space the point is farthest outside of.
+     *
+     * @param x
+     * @return -1 if x is in the polyhedron.
+     */
+    private int mostViolated(Vec x) {
+        stats.sufficientCriteriaCheck();
+        long work = (long) poly.numHalfSpaces() * x.dim();
+        return policy.apply(IntStream.range(0, poly.numHalfSpaces()), work)
+                .boxed()
+                .filter(i -> violation(i, x) > 0)
+                .max(Comparator.comparingDouble(i -> violation(i, x)))
+                .orElse(-1);
+    }
+
+    /**
+     * Solves gram z = r where gram is the Gram matrix of the normals of the
+     * active set.
+     *
+     * @param gram
+     * @param r overwritten with z.
+     * @return false if gram is singular.
+     */
+    private static boolean solve(double[][] gram, double[] r) {
+        int k = r.length;
+        double[][] l = new double[k][k];
+        for (int i = 0; i < k; i++)
+            for (int j = 0; j <= i; j++) {
+                double sum = gram[i][j];
+                for (int m = 0; m < j; m++) sum -= l[i][m] * l[j][m];
+                if (i != j) l[i][j] = sum / l[j][j];
+                else if (sum <= DEPENDENCE_TOLERANCE * gram[i][i]) return false;
+                else l[i][i] = Math.sqrt(sum);
+            }
+        for (int i = 0; i < k; i++) {
+            for (int m = 0; m < i; m++) r[i] -= l[i][m] * r[m];
+            r[i] /= l[i][i];
+        }
+        for (int i = k - 1; i >= 0; i--) {
+            for (int m = i + 1; m < k; m++) r[i] -= l[m][i] * r[m];
+            r[i] /= l[i][i];
+        }
+        return true;
+    }
+
+    /**
+     * The Gram matrix of the normals of the active set.
+     *
+     * @return
+     */
+    private double[][] gram() {
+        int k = active.size();
+        double[][] gram = new double[k][k];
+        for (int i = 0; i < k; i++)
+            for (int j = 0; j <= i; j++)
+                gram[i][j] = gram[j][i] = poly.getHS(active.get(i)).normal().ip(poly.getHS(active.get(j)).normal());
+        return gram;
+    }
+
+    /**
+     * Finds the projection. The active set is started over each time this
+     * is called.
+     *
+     * @return null if the polyhedron is empty.
+     * @throws ArithmeticException if rounding error keeps the algorithm from
+     * converging.
+     */
+    public Vec argMin() {
+        active.clear();
+        u.clear();
+        Vec x = y;
+        stats.affineSpaceGenerated(0);
+        int maxIterations = 10 * (poly.numHalfSpaces() + y.dim()) + 100;
+
+        for (int p = mostViolated(x), iteration = 0; p != -1; p = mostViolated(x)) {
+
+            Vec normal = poly.getHS(p).normal();
+            double uP = 0;
+
+            while (true) {
+                if (iteration++ > maxIterations)
+                    throw new ArithmeticException("The active set method did not converge.");
+
+                int k = active.size();
+                double[] r = new double[k];
+                for (int i = 0; i < k; i++) r[i] = poly.getHS(active.get(i)).normal().ip(normal);
+                double[][] gram = gram();
+                if (!solve(gram, r)) throw new ArithmeticException("The active set is degenerate.");
+
+                Vec z = normal;
+                for (int i = 0; i < k; i++) z = z.dif(poly.getHS(active.get(i)).normal().mult(r[i]));
+                double zNormal = z.ip(normal);
+                boolean dependent = zNormal <= DEPENDENCE_TOLERANCE * normal.normSq();
+
+                int drop = -1;
+                double t1 = Double.POSITIVE_INFINITY;
+                for (int i = 0; i < k; i++)
+                    if (r[i] > 0 && u.get(i) / r[i] < t1) {
+                        t1 = u.get(i) / r[i];
+                        drop = i;
+                    }
+
+                double t2 = dependent ? Double.POSITIVE_INFINITY
+                        : (normal.ip(x) - poly.getHS(p).boundary().b()) / zNormal;
+
+                if (dependent && drop == -1) return null;
+
+                double t = Math.min(t1, t2);
+                for (int i = 0; i < k; i++) u.set(i, u.get(i) - t * r[i]);
+                uP += t;
+                if (!dependent) x = x.dif(z.mult(t));
+
+                if (t2 <= t1) {
+                    active.add(p);
+                    u.add(uP);
+                    stats.affineSpaceGenerated(active.size());
+                    break;
+                }
+                active.remove(drop);
+                u.remove(drop);
+            }
+        }
+
+        stats.solvedAt(active.size());
+        return x;
+    }
+}
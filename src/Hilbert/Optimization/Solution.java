@@ -0,0 +1,79 @@
+package Hilbert.Optimization;
+
+import Hilbert.HalfSpace;
+import Hilbert.Vector;
+import java.util.List;
+import tools.SolverStatistics;
+
+/**
+ * The result of one of the CoupRliec algorithms, the argmin together with the
+ * half spaces whose boundaries it's on and the statistics gathered while
+ * finding it.
+ *
+ * @author Dov Neimand
+ * @param <Vec> the type of Hilbert space the argmin is in.
+ */
+public class Solution<Vec extends Vector<Vec>> {
+
+    /**
+     * The argmin over the polyhedron.
+     */
+    private final Vec argMin;
+
+    /**
+     * The half spaces whose boundaries contain the argmin.
+     */
+    private final List<HalfSpace<Vec>> activeSet;
+
+    /**
+     * What the algorithm did while looking for the argmin.
+     */
+    private final SolverStatistics statistics;
+
+    /**
+     * The constructor
+     *
+     * @param argMin the argmin over the polyhedron, null if none was found.
+     * @param activeSet the half spaces whose boundaries contain the argmin.
+     * @param statistics what the algorithm did while looking for the argmin.
+     */
+    public Solution(Vec argMin, List<HalfSpace<Vec>> activeSet, SolverStatistics statistics) {
+        this.argMin = argMin;
+        this.activeSet = activeSet;
+        this.statistics = statistics;
+    }
+
+    /**
+     * The argmin over the polyhedron.
+     *
+     * @return null if there is no argmin, as when the polyhedron is empty.
+     */
+    public Vec argMin() {
+        return argMin;
+    }
+
+    /**
+     * The half spaces whose boundaries contain the argmin. Passing them to
+     * setWarmStart of the next solver lets it start its search from them.
+     *
+     * @return an empty list if there is no argmin or it's in the interior of
+     * the polyhedron.
+     */
+    public List<HalfSpace<Vec>> activeSet() {
+        return activeSet;
+    }
+
+    /**
+     * What the algorithm did while looking for the argmin.
+     *
+     * @return
+     */
+    public SolverStatistics getStatistics() {
+        return statistics;
+    }
+
+    @Override
+    public String toString() {
+        return "argmin = " + argMin + "\n" + statistics;
+    }
+}
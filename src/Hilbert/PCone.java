@@ -1,13 +1,16 @@
 package Hilbert;
 
-import Convex.ASKeys.ASKey;
-import Convex.ASKeys.ASKeyPConeRI;
+import Convex.ASKeys.FaceKey;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import tools.ArgMinContainer;
+import tools.CancellationToken;
+import tools.ExecutionPolicy;
+import tools.SolverStatistics;
 
 /**
  * The ACone of an affine space is defined
@@ -20,6 +23,49 @@ public class PCone<Vec extends Vector<Vec>> extends Polyhedron<Vec> {
     protected ArgMinContainer<Vec> savedArgMin;
     protected final StrictlyConvexFunction<Vec> f;
 
+    /**
+     * The statistics this P-cone, and the P-cones generated from it, report
+     * to. This may be null.
+     */
+    protected SolverStatistics stats;
+
+    /**
+     * Decides if the streams over the faces of this P-cone, and the P-cones
+     * generated from it, are parallel.
+     */
+    protected ExecutionPolicy policy = ExecutionPolicy.ADAPTIVE;
+
+    /**
+     * Cancelled once the arg min over the polyhedron has been found, after
+     * which this P-cone, and the P-cones generated from it, stop instead of
+     * finding their minimums. This may be null.
+     */
+    protected CancellationToken<Vec> cancellation;
+
+    /**
+     * The index of each half space of this cone in the polyhedron being
+     * optimized over. faces[i] is the index of getHS(i).
+     */
+    protected final int[] faces;
+
+    /**
+     * The key of this cone, made from its faces.
+     */
+    protected final FaceKey key;
+
+    /**
+     * The arg min over the affine space of this cone, if f can be minimized
+     * incrementally. Be sure to call with incrementalArgMin().
+     */
+    private volatile IncrementalArgMin<Vec> incremental;
+
+    /**
+     * The P-cone this one was made from by adding its last face. Its
+     * incremental arg min is restricted to the last face to find this cone's.
+     * It is let go of once this cone's has been found.
+     */
+    private volatile PCone<Vec> parent;
+
     /**
      * Copy constructor
      *
@@ -28,17 +74,57 @@ public class PCone<Vec extends Vector<Vec>> extends Polyhedron<Vec> {
     public PCone(PCone<Vec> pCone) {
         super(pCone.halfspaces);
         this.f = pCone.f;
+        this.stats = pCone.stats;
+        this.policy = pCone.policy;
+        this.cancellation = pCone.cancellation;
+        this.faces = pCone.faces;
+        this.key = pCone.key;
+    }
+
+    /**
+     * A P-cone generated from another. It has the same function, reports
+     * to the same statistics, and has the same execution policy and
+     * cancellation token.
+     *
+     * @param generator the P-cone this one is generated from.
+     * @param hs the halfspaces of the new P-cone.
+     * @param faces the indices of the half spaces in the polyhedron.
+     * @param key the key made from faces.
+     */
+    protected PCone(PCone<Vec> generator, List<HalfSpace<Vec>> hs, int[] faces, FaceKey key) {
+        super(hs);
+        this.f = generator.f;
+        this.stats = generator.stats;
+        this.policy = generator.policy;
+        this.cancellation = generator.cancellation;
+        this.faces = faces;
+        this.key = key;
+        if (stats != null) stats.affineSpaceGenerated(hs.size());
     }
 
     /**
      *
      * @param f the function we seek to find the minimum of
      * @param hs a list of halfspaces
-     *
+     * @param faces the index of each half space in the polyhedron being
+     * optimized over.
      */
-    public PCone(StrictlyConvexFunction<Vec> f, List<HalfSpace<Vec>> hs) {
+    protected PCone(StrictlyConvexFunction<Vec> f, List<HalfSpace<Vec>> hs, int[] faces) {
         super(hs);
         this.f = f;
+        this.faces = faces;
+        this.key = FaceKey.of(faces);
+    }
+
+    /**
+     *
+     * @param f the function we seek to find the minimum of
+     * @param hs a list of halfspaces, they are taken to be the first faces of
+     * the polyhedron in the same order.
+     *
+     */
+    public PCone(StrictlyConvexFunction<Vec> f, List<HalfSpace<Vec>> hs) {
+        this(f, hs, IntStream.range(0, hs.size()).toArray());
     }
 
     /**
@@ -49,6 +135,8 @@ public class PCone<Vec extends Vector<Vec>> extends Polyhedron<Vec> {
     public PCone(StrictlyConvexFunction<Vec> f, HalfSpace<Vec> hs) {
         super(hs);
         this.f = f;
+        this.faces = new int[]{0};
+        this.key = FaceKey.of(faces);
     }
 
     /**
@@ -60,7 +148,7 @@ public class PCone<Vec extends Vector<Vec>> extends Polyhedron<Vec> {
      */
     protected List<HalfSpace<Vec>> concatHSToList(HalfSpace<Vec> addOn) {
         ArrayList<HalfSpace<Vec>> concatHSList
-                = new ArrayList(halfspaces.size() + 1);
+                = new ArrayList<>(halfspaces.size() + 1);
         concatHSList.addAll(halfspaces);
         concatHSList.add(addOn);
         return concatHSList;
@@ -70,22 +158,18 @@ public class PCone<Vec extends Vector<Vec>> extends Polyhedron<Vec> {
      * Creates a new polyhedron with the additional inequality constraint.
      *
      * @param addOn the inequality constraint being added
-     * @return A new PCone at the intersection of these half spaces and the
-     * added one.
-     */
-    public PCone<Vec> concat(HalfSpace<Vec> addOn) {
-        return new PCone<>(f, concatHSToList(addOn));
-    }
-
-    /**
-     * Creates a new polyhedron with the additional inequality constraint.
-     *
-     * @param addOn the inequality constraint being added
+     * @param indexOfLastPCone the index of addOn in the polyhedron being
+     * optimized over.
      * @return A new PCone at the intersection of these half spaces and the
      * added one.
      */
     public IndexedPCone<Vec> concat(HalfSpace<Vec> addOn, int indexOfLastPCone) {
-        return new IndexedPCone<>(f, concatHSToList(addOn), indexOfLastPCone);
+        int[] concatFaces = Arrays.copyOf(faces, faces.length + 1);
+        concatFaces[faces.length] = indexOfLastPCone;
+        IndexedPCone<Vec> concat = new IndexedPCone<>(this, concatHSToList(addOn), concatFaces,
+                key.with(indexOfLastPCone), indexOfLastPCone);
+        ((PCone<Vec>) concat).parent = this;
+        return concat;
     }
 
     /**
@@ -98,12 +182,13 @@ public class PCone<Vec extends Vector<Vec>> extends Polyhedron<Vec> {
      * @param i the halfspace to be removed.
      * @return null if the optimal point over the immediate supercone is outside
      * this cone, and the optimal point over the immediate supercone if it's
-     * inside this cone.
+     * inside this cone. The supercone's affine space may be empty, in which
+     * case it has no optimal point and null is returned.
      */
     protected ArgMinContainer<Vec> meetsNecesary(PCone<Vec> superCone, int i) {
 
         Vec superAConeArgMin = superCone.getSavedArgMin().argMin();
-        if (getHS(i).hasElement(superAConeArgMin))
+        if (superAConeArgMin != null && getHS(i).hasElement(superAConeArgMin))
             return new ArgMinContainer<>(superAConeArgMin, false);
         return null;
 
@@ -119,12 +204,18 @@ public class PCone<Vec extends Vector<Vec>> extends Polyhedron<Vec> {
      * include the desired supercone.
      * @return a supercone like this cone, but without constraint i.
      */
-    private PCone<Vec> superCone(int i, Map<ASKey, PCone<Vec>> superCones) {
-        return superCones.get(new ASKeyPConeRI(this, i));
+    private PCone<Vec> superCone(int i, Map<FaceKey, PCone<Vec>> superCones) {
+        PCone<Vec> superCone = superCones.get(key.without(faces[i]));
+        if (stats != null) {
+            if (superCone != null) stats.cacheHit();
+            else stats.cacheMiss();
+        }
+        return superCone;
     }
 
     protected ArgMinContainer<Vec> allSpaceArgMin() {
-        return new ArgMinContainer(f.argMinAffine(AffineSpace.<Vec>allSpace()), true);
+        if (stats != null) stats.necessaryCriteriaHit();
+        return new ArgMinContainer<>(f.argMinAffine(AffineSpace.<Vec>allSpace()), true);
     }
 
     /**
@@ -134,25 +225,66 @@ public class PCone<Vec extends Vector<Vec>> extends Polyhedron<Vec> {
      * @param superCones a set containing all the possible super cones of this
      * one whose halfspaces are halfspaces of the greater polyhedron.
      * @return the minimum over this cone.
+     * @throws CancellationToken.Cancelled if the search has been cancelled.
      */
-    public ArgMinContainer<Vec> min(Map<ASKey, PCone<Vec>> superCones) {
+    public ArgMinContainer<Vec> min(Map<FaceKey, PCone<Vec>> superCones) {
+        throwIfCancelled();
         if (isAllSpace())
             return savedArgMin = allSpaceArgMin();
 
         return savedArgMin = argMin(
-                intStream().parallel()
+                policy.apply(intStream(), work())
                         .mapToObj(i -> meetsNecesary(superCone(i, superCones), i))
         );
 
     }
 
+    /**
+     * The arg min over the affine space of this cone in a form that can be
+     * restricted to more planes. It is found from the parent's if there is
+     * one, and otherwise by restricting f's to each face in turn.
+     *
+     * @return null if f can't be minimized incrementally.
+     */
+    protected IncrementalArgMin<Vec> incrementalArgMin() {
+        IncrementalArgMin<Vec> inc = incremental;
+        if (inc != null) return inc;
+
+        PCone<Vec> p = parent;
+        if (p != null) {
+            inc = p.incrementalArgMin();
+            if (inc != null) inc = inc.concat(getHS(numHalfSpaces() - 1).boundary());
+        } else {
+            inc = f.incrementalArgMin();
+            for (int i = 0; i < numHalfSpaces() && inc != null; i++)
+                inc = inc.concat(getHS(i).boundary());
+        }
+        incremental = inc;
+        parent = null;
+        return inc;
+    }
+
+    /**
+     * The arg min of f over the affine space of this cone.
+     *
+     * @return null if the affine space is empty.
+     * @throws CancellationToken.Cancelled if the search has been cancelled.
+     */
+    protected Vec affineArgMin() {
+        throwIfCancelled();
+        IncrementalArgMin<Vec> inc = incrementalArgMin();
+        return inc == null ? f.argMinAffine(affineSpace()) : inc.argMin();
+    }
+
     /**
      * The affine space that is contained in the surfaces of all the halfspaces.
      *
      * @return
      */
     protected AffineSpace<Vec> affineSpace() {
-        return new AffineSpace<>(stream().map(hs -> hs.boundary()).toArray(Plane[]::new));
+        @SuppressWarnings("unchecked") //An array of a generic type can't be created.
+        Plane<Vec>[] planes = stream().map(hs -> hs.boundary()).toArray(Plane[]::new);
+        return new AffineSpace<>(planes);
     }
 
     /**
@@ -192,6 +324,63 @@ public class PCone<Vec extends Vector<Vec>> extends Polyhedron<Vec> {
         return f;
     }
 
+    /**
+     * The key of this cone, made from the indices of its half spaces.
+     *
+     * @return
+     */
+    public FaceKey getKey() {
+        return key;
+    }
+
+    /**
+     * Sets the statistics this P-cone, and the P-cones generated from it,
+     * report to.
+     *
+     * @param stats
+     */
+    public void setStatistics(SolverStatistics stats) {
+        this.stats = stats;
+    }
+
+    /**
+     * Sets the execution policy of this P-cone, and the P-cones generated
+     * from it.
+     *
+     * @param policy
+     */
+    public void setExecutionPolicy(ExecutionPolicy policy) {
+        this.policy = policy;
+    }
+
+    /**
+     * Sets the token that stops this P-cone, and the P-cones generated from
+     * it, once the search is over.
+     *
+     * @param cancellation
+     */
+    public void setCancellation(CancellationToken<Vec> cancellation) {
+        this.cancellation = cancellation;
+    }
+
+    /**
+     * Stops the calling worker if the search has been cancelled.
+     */
+    protected void throwIfCancelled() {
+        if (cancellation != null) cancellation.throwIfCancelled();
+    }
+
+    /**
+     * An estimate of the work done checking the supercones of this P-cone,
+     * one inner product for each face.
+     *
+     * @return the number of faces times the dimension.
+     */
+    protected long work() {
+        if (isAllSpace()) return 0;
+        return (long) numHalfSpaces() * getHS(0).dim();
+    }
+
     /**
      * This methods checks to see if any of the argmin containers disqualify
      * this PCone.If none do, then it calculates the optimal point over this
@@ -202,18 +391,26 @@ public class PCone<Vec extends Vector<Vec>> extends Polyhedron<Vec> {
      * necessary conditions, and have values if they do.
      * @return the arg min over this P-cone
      */
-    protected ArgMinContainer argMin(Stream<ArgMinContainer> meetsNecesary) {
+    protected ArgMinContainer<Vec> argMin(Stream<ArgMinContainer<Vec>> meetsNecesary) {
 
-        return meetsNecesary.filter(obj -> obj != null)
+        ArgMinContainer<Vec> superConeArgMin = meetsNecesary.filter(obj -> obj != null)
                 .findAny()
-                .orElse(new ArgMinContainer<>(f.argMinAffine(affineSpace()), true));
+                .orElse(null);
+
+        if (superConeArgMin != null) {
+            if (stats != null) stats.earlyExit();
+            return superConeArgMin;
+        }
+
+        if (stats != null) stats.necessaryCriteriaHit();
+        return new ArgMinContainer<>(affineArgMin(), true);
 
     }
 
     /**
      * an integer for each half space
      *
-     * @return a parallel stream of integers, one for each half space.
+     * @return a stream of integers, one for each half space.
      */
     protected IntStream intStream() {
         return IntStream.range(0, halfspaces.size());
@@ -79,6 +79,16 @@ public class Plane<Vec extends Vector<Vec>> extends AffineSpace<Vec>{
         return normal().ip(x) <= b() + tolerance;
     }
     
+    /**
+     * Is this plane above the given point, or within epsilon of it.
+     * @param x
+     * @param epsilon
+     * @return 
+     */
+    public boolean aboveOrContains(Vec x, double epsilon) {
+        return normal().ip(x) <= b() + epsilon;
+    }
+    
     /**
      * Is this plane below the given point, i.e. \<n, v\> \> b.
      * @param v
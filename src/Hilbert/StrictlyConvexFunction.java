@@ -27,6 +27,15 @@ public interface StrictlyConvexFunction<Vec extends Vector<Vec>> extends Functio
         return argMinAffine(AffineSpace.<Vec>allSpace());
     }
     
+    /**
+     * The arg min over the entire Hilbert space in a form that can be
+     * restricted to one plane at a time.
+     * @return null if this function can't be minimized incrementally.
+     */
+    public default IncrementalArgMin<Vec> incrementalArgMin(){
+        return null;
+    }
+    
     public default double min(AffineSpace<Vec> A){
         return apply(argMinAffine(A));
     }
@@ -68,6 +68,18 @@ public interface Vector<Vec extends Vector> {
         return Math.sqrt(normSq());
     }
     
+    /**
+     * A hash code that is the same for vectors that differ by less than the
+     * tolerance, as far as the type of vector can tell. By default, the hash
+     * code.
+     *
+     * @param tolerance
+     * @return
+     */
+    public default int quantizedHashCode(double tolerance) {
+        return hashCode();
+    }
+
     /**
      * The distance from this vector to another squared.
      * @param v
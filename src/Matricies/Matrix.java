@@ -222,8 +222,32 @@ public interface Matrix {
     
     public int numNonZeroes();
     
+    /**
+     * Matrices with at most this proportion of non zero elements are stored
+     * and multiplied as sparse matrices.
+     */
+    public static final double SPARSE_DENSITY = 0.1;
+
+    /**
+     * Should this matrix be stored as a sparse matrix?
+     *
+     * @return
+     */
     public default boolean shouldBeSparse(){
-        return numNonZeroes() <= 2*Math.min(rows(), cols());
+        return shouldBeSparse(numNonZeroes(), rows(), cols());
+    }
+
+    /**
+     * Should a matrix with the given number of non zero elements be stored as
+     * a sparse matrix?
+     *
+     * @param numNonZeroes
+     * @param rows
+     * @param cols
+     * @return true if at most SPARSE_DENSITY of the elements are non zero.
+     */
+    public static boolean shouldBeSparse(long numNonZeroes, int rows, int cols){
+        return numNonZeroes <= SPARSE_DENSITY * rows * cols;
     }
 
     /**
@@ -124,8 +124,71 @@ public class MatrixDense extends DMatrixRMaj implements Matrix {
         return mult;
     }
 
-    public PointSparse mult(PointSparse p) {
-        throw new UnsupportedOperationException("Dov, you still have to write this funtion.");
+    /**
+     * dest = this * x, without allocating.
+     *
+     * @param x
+     * @param dest overwritten with the product. It must not be x.
+     * @return dest
+     */
+    public PointD multInto(Point x, PointD dest) {
+        if (x.isDense()) CommonOps_DDRM.mult(this, x.asDense(), dest);
+        else {
+            Arrays.fill(dest.data, 0, numRows, 0);
+            x.asSparse().nonZeroes().forEach(coord -> {
+                for (int i = 0, j = coord.row; i < numRows; i++, j += numCols)
+                    dest.data[i] += data[j] * coord.value;
+            });
+        }
+        return dest.changed();
+    }
+
+    /**
+     * Multiplies this matrix by k in place.
+     *
+     * @param k
+     * @return this
+     */
+    public MatrixDense scaleInPlace(double k) {
+        CommonOps_DDRM.scale(k, this);
+        return changed();
+    }
+
+    /**
+     * Adds this matrix to dest in place.
+     *
+     * @param dest changed to dest + this.
+     * @return dest
+     */
+    public MatrixDense addTo(MatrixDense dest) {
+        CommonOps_DDRM.addEquals(dest, this);
+        return dest.changed();
+    }
+
+    /**
+     * Called after this matrix is changed in place.
+     *
+     * @return this
+     */
+    protected MatrixDense changed() {
+        return this;
+    }
+
+    /**
+     * Multiplies this matrix by a sparse vector, adding up the columns of the
+     * non zero elements, so only numRows * p.numNonZeroes() multiplications
+     * are done.
+     *
+     * @param p
+     * @return a dense vector.
+     */
+    public PointD mult(PointSparse p) {
+        PointD mult = new PointD(numRows);
+        p.nonZeroes().forEach(coord -> {
+            for (int i = 0, j = coord.row; i < numRows; i++, j += numCols)
+                mult.data[i] += data[j] * coord.value;
+        });
+        return mult;
     }
 
     /**
@@ -564,7 +627,9 @@ public class MatrixDense extends DMatrixRMaj implements Matrix {
     public MatrixSparse asSparse() {
         long size = Arrays.stream(data).filter(x -> x != 0).count();
         DMatrixSparseTriplet dmst = new DMatrixSparseTriplet(numRows, numCols, (int) size);
-        IntStream.range(0, numCols).forEach(col -> IntStream.range(0, numRows).forEach(row -> dmst.set(row, col, get(row, col))));
+        for (int row = 0; row < numRows; row++)
+            for (int col = 0; col < numCols; col++)
+                if (get(row, col) != 0) dmst.addItem(row, col, get(row, col));
         return new MatrixSparse(dmst);
     }
 
@@ -584,9 +649,10 @@ public class MatrixDense extends DMatrixRMaj implements Matrix {
 
     @Override
     public int numNonZeroes() {
-        return (int) Matrix.z2Stream(numRows, numCols).filter(p -> get(p.l, p.r)
-                != 0).count();
-
+        int numNonZeroes = 0;
+        for (int i = 0; i < getNumElements(); i++)
+            if (data[i] != 0) numNonZeroes++;
+        return numNonZeroes;
     }
 
     @Override
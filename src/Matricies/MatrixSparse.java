@@ -2,6 +2,7 @@ package Matricies;
 
 import tools.Pair1T;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import java.util.Iterator;
@@ -17,9 +18,12 @@ import org.ejml.data.DMatrixSparse;
 import org.ejml.data.DMatrixSparseCSC;
 import org.ejml.data.DMatrixSparseTriplet;
 import org.ejml.interfaces.decomposition.QRDecomposition;
+import org.ejml.interfaces.linsol.LinearSolverSparse;
+import org.ejml.ops.DConvertMatrixStruct;
 import org.ejml.sparse.FillReducing;
 import org.ejml.sparse.csc.CommonOps_DSCC;
 import org.ejml.sparse.csc.factory.DecompositionFactory_DSCC;
+import org.ejml.sparse.csc.factory.LinearSolverFactory_DSCC;
 
 /**
  * This is a sparse Matrix.  The class is not sufficiently tested.
@@ -56,7 +60,7 @@ public class MatrixSparse implements Matrix {
             DMatrixSparseTriplet dmst = new DMatrixSparseTriplet(rows, cols, numNonZero);
             for (int i = 0; i < rows; i++)
                 for (int j = 0; j < cols; j++)
-                    dmst.set(i, j, matrix[i][j]);
+                    if (matrix[i][j] != 0) dmst.addItem(i, j, matrix[i][j]);
 
             setFromTrip(dmst);
         }
@@ -159,19 +163,17 @@ public class MatrixSparse implements Matrix {
      */
     public MatrixSparse mult(Matrix A) {
         if (cols() != A.rows()) return null;
-        if (isDense()) return mult(A.asDense());
+        if (A.isDense()) return mult(A.asDense());
         else return mult(A.asSparse());
     }
 
     public MatrixSparse mult(MatrixDense A) {
-        MatrixSparse mult = new MatrixSparse(rows(), cols());
-        CommonOps_DSCC.mult(ejmlSparse, A.asSparse().ejmlSparse, mult.ejmlSparse);
-        return mult;
+        return mult(A.asSparse());
     }
 
     public MatrixSparse mult(MatrixSparse A) {
 
-        MatrixSparse mult = new MatrixSparse(rows(), cols());
+        MatrixSparse mult = new MatrixSparse(rows(), A.cols());
         CommonOps_DSCC.mult(ejmlSparse, A.ejmlSparse, mult.ejmlSparse);
         return mult;
 
@@ -186,7 +188,7 @@ public class MatrixSparse implements Matrix {
     public MatrixSparse mult(double k) {
 
         MatrixSparse mult = new MatrixSparse(rows(), cols());
-        CommonOps_DSCC.add(k, ejmlSparse, 0, null, mult.ejmlSparse, null, null);
+        CommonOps_DSCC.scale(k, ejmlSparse, mult.ejmlSparse);
         return mult;
 
     }
@@ -327,8 +329,7 @@ public class MatrixSparse implements Matrix {
      * @return
      */
     protected MatrixSparse setFromTrip(DMatrixSparseTriplet trip) {
-        ejmlSparse = new DMatrixSparseCSC(trip.numRows, trip.numCols, trip.getNonZeroLength());
-//        ConvertDMatrixStruct.convert(trip, ejmlSparse);TODO:This function needs to be fixed
+        ejmlSparse = DConvertMatrixStruct.convert(trip, (DMatrixSparseCSC) null);
         return this;
     }
 
@@ -418,13 +419,10 @@ public class MatrixSparse implements Matrix {
         
         DMatrixSparseTriplet trip = new DMatrixSparseTriplet(cols[0].dim(), cols.length, numNonZeroes);
         
-        IntStream.range(0, cols.length)
-                .forEach(colInd -> 
-                        IntStream.range(0, cols[colInd].dim())
-                                .forEach(rowInd ->
-                                    trip.set(rowInd, colInd, cols[colInd].get(rowInd))
-                                )
-                );
+        for (int colInd = 0; colInd < cols.length; colInd++)
+            for (int rowInd = 0; rowInd < cols[colInd].dim(); rowInd++)
+                if (cols[colInd].get(rowInd) != 0)
+                    trip.addItem(rowInd, colInd, cols[colInd].get(rowInd));
         return new MatrixSparse(trip);
     }
 
@@ -557,12 +555,17 @@ public class MatrixSparse implements Matrix {
         return StreamSupport.stream(iterable.spliterator(), false);
     }
 
+    /**
+     * Multiplies this matrix by a vector. A dense vector is multiplied without
+     * being made sparse, and the product is dense.
+     *
+     * @param p
+     * @return
+     */
     @Override
-    public PointSparse mult(Point p) {
-
-        PointSparse ps = new PointSparse(rows());
-        CommonOps_DSCC.mult(ejmlSparse, p.asSparse().ejmlSparse, ps.ejmlSparse);
-        return ps;
+    public Point mult(Point p) {
+        if (p.isDense()) return mult(p.asDense());
+        return mult(p.asSparse());
     }
 
     public double epsilon = 1e-9;
@@ -600,9 +603,54 @@ public class MatrixSparse implements Matrix {
         return new MatrixSparse(trip);
     }
 
+    /**
+     * An ordering of the columns that reduces fill in when this matrix is
+     * factored, the columns with the fewest non zero elements first. EJML's
+     * sparse factorizations don't offer an approximate minimum degree
+     * ordering, so this column count ordering is used instead.
+     *
+     * @return the column of this matrix that goes in each place.
+     */
+    public int[] fillReducingOrder() {
+        int[] colStart = ejmlSparse.col_idx;
+        return IntStream.range(0, cols()).boxed()
+                .sorted(Comparator.comparingInt(j -> colStart[j + 1] - colStart[j]))
+                .mapToInt(j -> j).toArray();
+    }
+
+    /**
+     * A matrix whose columns are the columns of this one in the given order.
+     *
+     * @param order the column of this matrix that goes in each place.
+     * @return
+     */
+    public MatrixSparse permuteCols(int[] order) {
+        DMatrixSparseCSC permuted = new DMatrixSparseCSC(rows(), cols(), numNonZeroes());
+        CommonOps_DSCC.permute(null, ejmlSparse, order, permuted);
+        return new MatrixSparse(permuted);
+    }
+
+    /**
+     * The pseudo inverse from a sparse QR decomposition of the columns in a
+     * fill reducing order. If this matrix has more columns than rows, the
+     * pseudo inverse of the transpose is transposed. If the matrix doesn't
+     * have full rank, the dense pseudo inverse is used.
+     *
+     * @return
+     */
     @Override
     public Matrix pseudoInverse() {
-         return asDense().pseudoInverse();  //TODO: there might be a better way to do this.
-        
+        if (rows() < cols()) return T().pseudoInverse().T();
+
+        int[] order = fillReducingOrder();
+        LinearSolverSparse<DMatrixSparseCSC, DMatrixRMaj> qr = LinearSolverFactory_DSCC.qr(FillReducing.NONE);
+        if (!qr.setA(permuteCols(order).ejmlSparse) || qr.quality() <= epsilon)
+            return asDense().pseudoInverse();
+
+        DMatrixSparseCSC permutedInv = new DMatrixSparseCSC(cols(), rows(), 0);
+        qr.solveSparse(identity(rows()).ejmlSparse, permutedInv);
+        DMatrixSparseCSC inv = new DMatrixSparseCSC(cols(), rows(), permutedInv.getNonZeroLength());
+        CommonOps_DSCC.permute(order, permutedInv, null, inv);
+        return new MatrixSparse(inv);
     }
 }
\ No newline at end of file
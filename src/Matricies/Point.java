@@ -135,6 +135,22 @@ public interface Point extends Matrix, Vector<Point>{
 
     public int hashCode();
 
+    /**
+     * A hash code of the values rounded to multiples of the tolerance, so
+     * that points that differ by rounding error usually have the same hash
+     * code. Points with the same values have the same quantized hash code,
+     * whether they're dense or sparse.
+     *
+     * @param tolerance
+     * @return
+     */
+    @Override
+    public default int quantizedHashCode(double tolerance) {
+        int h = 1;
+        for (int i = 0; i < dim(); i++) h = 31 * h + Long.hashCode(Math.round(get(i) / tolerance));
+        return h;
+    }
+
     
     /**
      *
@@ -174,6 +190,11 @@ public interface Point extends Matrix, Vector<Point>{
     public default Point sum(Point v) {
         return plus(v);
     }
+
+    @Override
+    public default Point dif(Point v) {
+        return minus(v);
+    }
     
     /**
      * sets the values of this point to a sub array.
@@ -24,7 +24,6 @@ public class PointD extends MatrixDense implements Point {//implements Comparabl
     public PointD(double... x) {
         super(x.length, 1);
         System.arraycopy(x, 0, data, 0, x.length);
-        hash = Arrays.hashCode(x);
     }
 
     public PointD(Point x) {
@@ -84,16 +83,125 @@ public class PointD extends MatrixDense implements Point {//implements Comparabl
     public PointD(PointD p) {
         this(p.data.length);
         System.arraycopy(p.data, 0, data, 0, p.data.length);
-        this.hash = p.hash;
+        hash = p.hash;
+        hashIsZero = p.hashIsZero;
     }
 
+    /**
+     * The hash code, computed the first time it's needed. 0 means it hasn't
+     * been computed, unless hashIsZero is set.
+     */
     private int hash;
 
+    /**
+     * Was the hash code computed and found to be 0?
+     */
+    private boolean hashIsZero;
+
+    /**
+     * Forgets the hash code, so that it's computed again the next time it's
+     * needed. Writes through set and the other methods of this class do this
+     * themselves, but a caller that changes the values through data or
+     * array() must call this.
+     *
+     * @return this
+     */
     public PointD setHash() {
-        hash = Arrays.hashCode(super.data);
+        hash = 0;
+        hashIsZero = false;
+        quantized = null;
         return this;
     }
 
+    /**
+     * The last quantized hash code computed and its tolerance.
+     */
+    private volatile QuantizedHash quantized;
+
+    private static class QuantizedHash {
+
+        private final double tolerance;
+
+        private final int hash;
+
+        private QuantizedHash(double tolerance, int hash) {
+            this.tolerance = tolerance;
+            this.hash = hash;
+        }
+    }
+
+    @Override
+    public void set(int row, int col, double val) {
+        super.set(row, col, val);
+        setHash();
+    }
+
+    @Override
+    public void unsafe_set(int row, int col, double val) {
+        super.unsafe_set(row, col, val);
+        setHash();
+    }
+
+    @Override
+    public void add(int row, int col, double val) {
+        super.add(row, col, val);
+        setHash();
+    }
+
+    @Override
+    public double set(int index, double val) {
+        setHash();
+        return super.set(index, val);
+    }
+
+    @Override
+    public double plus(int index, double val) {
+        setHash();
+        return super.plus(index, val);
+    }
+
+    @Override
+    public double minus(int index, double val) {
+        setHash();
+        return super.minus(index, val);
+    }
+
+    @Override
+    public double times(int index, double val) {
+        setHash();
+        return super.times(index, val);
+    }
+
+    @Override
+    public double div(int index, double val) {
+        setHash();
+        return super.div(index, val);
+    }
+
+    @Override
+    public void zero() {
+        super.zero();
+        setHash();
+    }
+
+    @Override
+    public void fill(double val) {
+        super.fill(val);
+        setHash();
+    }
+
+    @Override
+    public void setData(double[] data) {
+        super.setData(data);
+        setHash();
+    }
+
+    @Override
+    public void reshape(int numRows, int numCols, boolean saveValues) {
+        super.reshape(numRows, numCols, saveValues);
+        setHash();
+    }
+
 
     /**
      * @see plus
@@ -102,7 +210,59 @@ public class PointD extends MatrixDense implements Point {//implements Comparabl
      */
     @Override
     public PointD minus(Point p) {
-        return plus(p.mult(-1));
+        return minusInto(p, new PointD(dim()));
+    }
+
+    /**
+     * dest = this - p, without allocating.
+     *
+     * @param p
+     * @param dest overwritten with the difference. It may be this.
+     * @return dest
+     */
+    public PointD minusInto(Point p, PointD dest) {
+        if (p.isDense() && p.dim() == data.length) {
+            double[] pData = p.asDense().data;
+            for (int i = 0; i < data.length; i++) dest.data[i] = data[i] - pData[i];
+        } else for (int i = 0; i < data.length; i++) dest.data[i] = data[i] - p.get(i);
+        return dest.changed();
+    }
+
+    /**
+     * dest += alpha * x, without allocating.
+     *
+     * @param alpha
+     * @param x
+     * @param dest
+     * @return dest
+     */
+    public static PointD axpy(double alpha, Point x, PointD dest) {
+        if (x.isDense() && x.dim() == dest.data.length) {
+            double[] xData = x.asDense().data;
+            for (int i = 0; i < dest.data.length; i++) dest.data[i] += alpha * xData[i];
+        } else for (int i = 0; i < dest.data.length; i++) dest.data[i] += alpha * x.get(i);
+        return dest.changed();
+    }
+
+    /**
+     * Adds this point to dest in place.
+     *
+     * @param dest changed to dest + this.
+     * @return dest
+     */
+    public PointD addTo(PointD dest) {
+        return axpy(1, this, dest);
+    }
+
+    @Override
+    public PointD scaleInPlace(double k) {
+        for (int i = 0; i < data.length; i++) data[i] *= k;
+        return changed();
+    }
+
+    @Override
+    protected PointD changed() {
+        return setHash();
     }
 
     /**
@@ -118,7 +278,18 @@ public class PointD extends MatrixDense implements Point {//implements Comparabl
 
     @Override
     public double distSq(Point mp) {
-        return minus(mp).dot(minus(mp));
+        double distSq = 0;
+        if (mp.isDense() && mp.dim() == data.length) {
+            double[] mpData = mp.asDense().data;
+            for (int i = 0; i < data.length; i++) {
+                double dif = data[i] - mpData[i];
+                distSq += dif * dif;
+            }
+        } else for (int i = 0; i < data.length; i++) {
+            double dif = data[i] - mp.get(i);
+            distSq += dif * dif;
+        }
+        return distSq;
     }
 
     /**
@@ -128,7 +299,7 @@ public class PointD extends MatrixDense implements Point {//implements Comparabl
      */
     @Override
     public double magnitude() {
-        return d(new PointD(dim()));
+        return Math.sqrt(dot(this));
     }
 
     /**
@@ -140,7 +311,7 @@ public class PointD extends MatrixDense implements Point {//implements Comparabl
     public PointD dir() {
         double m = magnitude();
         if (m == 0) return new PointD(dim());
-        return mapToDense(x -> x / m);
+        return mult(1 / m);
     }
 
     @Override
@@ -196,7 +367,7 @@ public class PointD extends MatrixDense implements Point {//implements Comparabl
      */
     @Override
     public PointD mult(double k) {
-        return mapToDense(x -> x * k);
+        return new PointD(this).scaleInPlace(k);
     }
 
     @Override
@@ -265,8 +436,31 @@ public class PointD extends MatrixDense implements Point {//implements Comparabl
 
     @Override
     public int hashCode() {
-//        return Arrays.hashCode(data);
-        return hash;
+        int h = hash;
+        if (h == 0 && !hashIsZero) {
+            h = Arrays.hashCode(data);
+            if (h == 0) hashIsZero = true;
+            else hash = h;
+        }
+        return h;
+    }
+
+    /**
+     * A hash code of the values rounded to multiples of the tolerance, so
+     * that points that differ by rounding error usually have the same hash
+     * code. 0 and -0 have the same hash code.
+     *
+     * @param tolerance
+     * @return
+     */
+    @Override
+    public int quantizedHashCode(double tolerance) {
+        QuantizedHash q = quantized;
+        if (q != null && q.tolerance == tolerance) return q.hash;
+        int h = 1;
+        for (double x : data) h = 31 * h + Long.hashCode(Math.round(x / tolerance));
+        quantized = new QuantizedHash(tolerance, h);
+        return h;
     }
 
     @Override
@@ -23,7 +23,7 @@ import org.ejml.sparse.csc.CommonOps_DSCC;
 public class PointSparse extends MatrixSparse implements Point{
 
     public PointSparse(int dim) {
-        super(1, dim);
+        super(dim, 1);
     }
 
     public PointSparse(Point p) {
@@ -80,7 +80,7 @@ public class PointSparse extends MatrixSparse implements Point{
     }
     
     public PointSparse concat(PointSparse ps){
-        DMatrixSparseCSC concat = new DMatrixSparseCSC(dim(), ps.dim(), ejmlSparse.getNonZeroLength() + ps.ejmlSparse.getNonZeroLength());
+        DMatrixSparseCSC concat = new DMatrixSparseCSC(dim() + ps.dim(), 1, ejmlSparse.getNonZeroLength() + ps.ejmlSparse.getNonZeroLength());
         CommonOps_DSCC.concatRows(ejmlSparse, ps.ejmlSparse, concat);
         return new PointSparse(concat);
     }
@@ -114,7 +114,7 @@ public class PointSparse extends MatrixSparse implements Point{
 
     @Override
     public double dot(Point p) {
-        return nonZeroes().mapToDouble(coord -> coord.value * get(coord.row)).sum();
+        return nonZeroes().mapToDouble(coord -> coord.value * p.get(coord.row)).sum();
     }
 
     @Override
@@ -128,6 +128,61 @@ public class PointSparse extends MatrixSparse implements Point{
     public boolean equals(Point p) {
         return super.equals(p);
     }
+
+    /**
+     * The hash code, computed the first time it's needed. 0 means it hasn't
+     * been computed, unless hashIsZero is set.
+     */
+    private int hash;
+
+    /**
+     * Was the hash code computed and found to be 0?
+     */
+    private boolean hashIsZero;
+
+    @Override
+    protected void set(int row, int col, double d) {
+        super.set(row, col, d);
+        hash = 0;
+        hashIsZero = false;
+    }
+
+    /**
+     * The number of elements that aren't 0, not counting stored zeroes.
+     *
+     * @return
+     */
+    private long numNonZeroValues() {
+        return nonZeroes().filter(coord -> coord.value != 0).count();
+    }
+
+    /**
+     * The hash code depends on the dimension and the non zero elements, in
+     * any order they're stored in.
+     *
+     * @return
+     */
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0 && !hashIsZero) {
+            h = 31 * dim() + nonZeroes().filter(coord -> coord.value != 0)
+                    .mapToInt(coord -> coord.row * 0x9e3779b9 ^ Double.hashCode(coord.value))
+                    .sum();
+            if (h == 0) hashIsZero = true;
+            else hash = h;
+        }
+        return h;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (!(obj instanceof PointSparse)) return false;
+        PointSparse other = (PointSparse) obj;
+        return dim() == other.dim() && numNonZeroValues() == other.numNonZeroValues()
+                && nonZeroes().allMatch(coord -> coord.value == 0 || other.get(coord.row) == coord.value);
+    }
     
 
     @Override
@@ -147,7 +202,7 @@ public class PointSparse extends MatrixSparse implements Point{
 
     @Override
     public double magnitude() {
-        return d(this);
+        return Math.sqrt(dot(this));
     }
 
 
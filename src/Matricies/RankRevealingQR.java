@@ -0,0 +1,157 @@
+package Matricies;
+
+import java.util.NoSuchElementException;
+import org.ejml.data.DMatrixRMaj;
+import org.ejml.dense.row.CommonOps_DDRM;
+import org.ejml.dense.row.factory.DecompositionFactory_DDRM;
+import org.ejml.interfaces.decomposition.QRPDecomposition_F64;
+
+/**
+ * A QR factorization with column pivoting of A^T, where the rows of A are the
+ * normals of Ax = b. If A^T P = QR then the first rank columns of Q are an
+ * orthonormal basis for the row space of A and the remaining columns are an
+ * orthonormal basis for its null space. The rank is found from the pivoted
+ * diagonal of R against a tolerance, not from exact zero tests, and a
+ * particular solution of Ax = b is found from the same factorization.
+ *
+ * @author Dov Neimand
+ */
+public class RankRevealingQR {
+
+    private final QRPDecomposition_F64<DMatrixRMaj> qrp;
+
+    /**
+     * The compact R, min(n, k) x k.
+     */
+    private final DMatrixRMaj r;
+
+    private final int[] pivots;
+
+    /**
+     * The number of rows of A and the dimension of the space.
+     */
+    private final int k, n;
+
+    private final int rank;
+
+    private final double tolerance;
+
+    /**
+     * The compact Q, saved the first time it's needed.
+     */
+    private DMatrixRMaj q;
+
+    /**
+     * The constructor.
+     *
+     * @param A the rows of A are the normals.
+     * @param tolerance how small, relative to the largest element of A, a
+     * pivot may be before the remaining rows of A are taken to be dependent.
+     */
+    public RankRevealingQR(Matrix A, double tolerance) {
+        this.tolerance = tolerance;
+        k = A.rows();
+        n = A.cols();
+        DMatrixRMaj aT = A.asDense().T();
+        qrp = DecompositionFactory_DDRM.qrp(n, k);
+        qrp.setSingularThreshold(tolerance);
+        if (!qrp.decompose(aT))
+            throw new ArithmeticException("The QR decomposition failed.");
+        r = qrp.getR(null, true);
+        pivots = qrp.getColPivots();
+        rank = qrp.getRank();
+    }
+
+    /**
+     * The rank of A.
+     *
+     * @return
+     */
+    public int rank() {
+        return rank;
+    }
+
+    /**
+     * The dimension of the space the normals are in.
+     *
+     * @return
+     */
+    public int dim() {
+        return n;
+    }
+
+    /**
+     * The dimension of the null space of A.
+     *
+     * @return
+     */
+    public int nullity() {
+        return n - rank;
+    }
+
+    /**
+     * The compact Q.
+     *
+     * @return
+     */
+    private synchronized DMatrixRMaj q() {
+        if (q == null) q = qrp.getQ(null, true);
+        return q;
+    }
+
+    /**
+     * An orthonormal basis for the row space of A.
+     *
+     * @return an n x rank matrix with orthonormal columns.
+     */
+    public MatrixDense rowSpaceBasis() {
+        return new MatrixDense(CommonOps_DDRM.extract(q(), 0, n, 0, rank));
+    }
+
+    /**
+     * An orthonormal basis for the null space of A. This needs the full n x
+     * n Q, so it's only computed when asked for.
+     *
+     * @return an n x (n - rank) matrix with orthonormal columns.
+     */
+    public MatrixDense nullSpaceBasis() {
+        DMatrixRMaj fullQ;
+        synchronized (this) {
+            fullQ = qrp.getQ(null, false);
+        }
+        return new MatrixDense(CommonOps_DDRM.extract(fullQ, 0, n, rank, n));
+    }
+
+    /**
+     * The solution of Ax = b with the least norm. Since A = P R^T Q^T, the
+     * solution is Q_1 w where R_11^T w is the first rank pivoted elements of
+     * b, found by forward substitution. The other elements of b are checked
+     * against w.
+     *
+     * @param b
+     * @return a point in the affine space Ax = b.
+     * @throws NoSuchElementException if Ax = b has no solution.
+     */
+    public PointD solve(Point b) {
+        double[] w = new double[rank];
+        for (int i = 0; i < rank; i++) {
+            double sum = b.get(pivots[i]);
+            for (int j = 0; j < i; j++) sum -= r.unsafe_get(j, i) * w[j];
+            w[i] = sum / r.unsafe_get(i, i);
+        }
+        for (int i = rank; i < k; i++) {
+            double bi = b.get(pivots[i]), sum = 0;
+            for (int j = 0; j < rank; j++) sum += r.unsafe_get(j, i) * w[j];
+            if (Math.abs(sum - bi) > tolerance * (1 + Math.abs(bi)))
+                throw new NoSuchElementException("Ax = b has no solution, row " + pivots[i] + " is off by " + (sum - bi));
+        }
+        PointD x = new PointD(n);
+        DMatrixRMaj q = q();
+        for (int row = 0; row < n; row++) {
+            double sum = 0;
+            for (int j = 0; j < rank; j++) sum += q.unsafe_get(row, j) * w[j];
+            x.unsafe_set(row, 0, sum);
+        }
+        return x;
+    }
+}
@@ -0,0 +1,42 @@
+package Matricies;
+
+/**
+ * Buffers each thread can reuse for temporary values in hot loops, so that
+ * they don't allocate. A class that needs scratch space should have its own
+ * Scratch, and must not let the buffers escape or use them across calls that
+ * might use the same Scratch.
+ *
+ * @author Dov Neimand
+ */
+public class Scratch {
+
+    private final ThreadLocal<double[]> array = ThreadLocal.withInitial(() -> new double[0]);
+
+    private final ThreadLocal<PointD> point = new ThreadLocal<>();
+
+    /**
+     * An array of at least the given length. Its values are left over from
+     * the last time it was used.
+     *
+     * @param length
+     * @return
+     */
+    public double[] array(int length) {
+        double[] a = array.get();
+        if (a.length < length) array.set(a = new double[length]);
+        return a;
+    }
+
+    /**
+     * A point of the given dimension. Its values are left over from the last
+     * time it was used.
+     *
+     * @param dim
+     * @return
+     */
+    public PointD point(int dim) {
+        PointD p = point.get();
+        if (p == null || p.dim() != dim) point.set(p = new PointD(dim));
+        return p;
+    }
+}
@@ -1,11 +1,14 @@
 package main;
 
+import Convex.PolyhedronProjector;
 import Convex.RnPolyhedron;
 import Hilbert.HalfSpace;
 import Matricies.Point;
 import Matricies.PointD;
+import Matricies.PointSparse;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import tools.Table;
 
 public class Main {
@@ -20,15 +23,15 @@ public class Main {
     }
 
     public static RnPolyhedron Cube() {
-        PointD ones = new PointD(1, 1, 1);
+        PointD ones = new PointD(new double[]{1, 1, 1});
         PointD origin = new PointD(3);
         ArrayList<HalfSpace<Point>> halfspaces = new ArrayList<>();
-        halfspaces.add(new HalfSpace<>(new PointD(1, 0, 0), ones));
-        halfspaces.add(new HalfSpace<>(new PointD(0, 1, 0), ones));
-        halfspaces.add(new HalfSpace<>(new PointD(0, 0, 1), ones));
-        halfspaces.add(new HalfSpace<>(new PointD(-1, 0, 0), origin));
-        halfspaces.add(new HalfSpace<>(new PointD(0, -1, 0), origin));
-        halfspaces.add(new HalfSpace<>(new PointD(0, 0, -1), origin));
+        halfspaces.add(new HalfSpace<>(new PointD(new double[]{1, 0, 0}), ones));
+        halfspaces.add(new HalfSpace<>(new PointD(new double[]{0, 1, 0}), ones));
+        halfspaces.add(new HalfSpace<>(new PointD(new double[]{0, 0, 1}), ones));
+        halfspaces.add(new HalfSpace<>(new PointD(new double[]{-1, 0, 0}), origin));
+        halfspaces.add(new HalfSpace<>(new PointD(new double[]{0, -1, 0}), origin));
+        halfspaces.add(new HalfSpace<>(new PointD(new double[]{0, 0, -1}), origin));
         return new RnPolyhedron(halfspaces);
     }
 
@@ -38,7 +41,114 @@ public class Main {
     }
 
     public static void testCube() {
-        System.out.println(Cube().proj(new PointD(3, 7, 9)));
+        System.out.println(Cube().proj(new PointD(new double[]{3, 7, 9})));
+    }
+
+    /**
+     * Projects the same points onto the cube twice, and checks that the
+     * affine spaces found the first time are found in the projector's cache
+     * the second time.
+     */
+    public static void testProjectorCache() {
+        PolyhedronProjector projector = Cube().projector();
+        PointD[] points = {
+            new PointD(new double[]{3, 7, 9}),
+            new PointD(new double[]{-2, 0.5, 4}),
+            new PointD(new double[]{0.5, 2, -3})
+        };
+        for (int pass = 0; pass < 2; pass++)
+            for (PointD y : points) projector.proj(y);
+        if (projector.numSavedAffineSpaces() == 0 || projector.affineSpaceCache().hits() == 0)
+            throw new IllegalStateException("The saved affine spaces were not used: " + projector.affineSpaceCache());
+        System.out.println(projector.affineSpaceCache());
+    }
+
+    /**
+     * Projects points onto random polyhedra by brute force, reversing the
+     * order of the half spaces between projections without clearing the
+     * saved constraint matrix, and checks the projections against the active
+     * set method.
+     */
+    public static void testBruteForceReordered() {
+        PointD.rand.setSeed(1);
+        for (int i = 0; i < 50; i++) {
+            RnPolyhedron poly = RnPolyhedron.randomNonEmpty(8, 1, 3);
+            PointD y = PointD.uniformBoundedRand(new PointD(3), 10);
+            poly.bruteForceProjection(y);
+            Collections.reverse(poly.getHalfspaces());
+            Point bruteForce = poly.bruteForceProjection(y), activeSet = poly.projActiveSet(y);
+            if (bruteForce.d(activeSet) > 1e-7)
+                throw new IllegalStateException("The brute force projection " + bruteForce
+                        + " is not the projection " + activeSet);
+        }
+    }
+
+    /**
+     * Scales and subtracts sparse points, and checks them against the same
+     * operations on dense points.
+     */
+    public static void testSparseScale() {
+        PointSparse sparse = new PointSparse(5, i -> i % 2 == 0 ? i + 1 : 0);
+        PointD dense = sparse.asDense();
+        Point[][] pairs = {
+            {sparse.mult(2), dense.mult(2)},
+            {sparse.mult(-1), dense.mult(-1)},
+            {sparse.minus(new PointSparse(5, 2, 1)), dense.minus(new PointD(5, 2, 1))}
+        };
+        for (Point[] pair : pairs)
+            if (pair[0].asDense().d(pair[1]) > 1e-12)
+                throw new IllegalStateException("The sparse point " + pair[0] + " should be " + pair[1]);
+    }
+
+    /**
+     * Projects onto the box [0, 1]^12 with sparse normals, and a face
+     * parallel to x_0 <= 1 that is farther out and should be removed, and
+     * checks the projections against clamping each coordinate.
+     */
+    public static void testSparseNormals() {
+        int dim = 12;
+        ArrayList<HalfSpace<Point>> halfspaces = new ArrayList<>();
+        for (int i = 0; i < dim; i++) {
+            halfspaces.add(new HalfSpace<>(new PointSparse(dim, i, 1), 1));
+            halfspaces.add(new HalfSpace<>(new PointSparse(dim, i, -1), 0));
+        }
+        halfspaces.add(new HalfSpace<>(new PointSparse(dim, 0, 2), 4));
+        RnPolyhedron box = new RnPolyhedron(halfspaces);
+
+        PointD.rand.setSeed(1);
+        for (int i = 0; i < 20; i++) {
+            PointD y = PointD.uniformBoundedRand(new PointD(dim), 3);
+            PointD clamped = new PointD(dim, j -> Math.min(Math.max(y.get(j), 0), 1));
+            Point[] projections = {box.proj(y), box.projector().proj(y), box.projActiveSet(y)};
+            for (Point proj : projections)
+                if (proj.d(clamped) > 1e-7)
+                    throw new IllegalStateException("The projection " + proj + " should be " + clamped);
+        }
+        if (box.numRedundant() != 1)
+            throw new IllegalStateException(box.numRedundant() + " redundant half spaces were found instead of 1.");
+    }
+
+    /**
+     * Projects onto x <= 0 and x >= 1 in R2, which is empty. The P-cone
+     * with both faces has an empty affine space, and every method should
+     * find that there's no projection.
+     */
+    public static void testEmptyPolyhedron() {
+        ArrayList<HalfSpace<Point>> halfspaces = new ArrayList<>();
+        halfspaces.add(new HalfSpace<>(new PointD(new double[]{1, 0}), 0));
+        halfspaces.add(new HalfSpace<>(new PointD(new double[]{-1, 0}), -1));
+        RnPolyhedron empty = new RnPolyhedron(halfspaces);
+        PointD y = new PointD(new double[]{0.5, 3});
+
+        Point[] projections = {
+            empty.projCoupRleic(y),
+            empty.projCoupRliecOrderedHalfSpaces(y),
+            empty.projCoupRliecPointMethod(y),
+            empty.proj(y)
+        };
+        for (Point proj : projections)
+            if (proj != null)
+                throw new IllegalStateException("A point was projected onto an empty polyhedron: " + proj);
     }
 
     /**
@@ -0,0 +1,216 @@
+package tools;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * A cache that holds at most a given number of bytes. When it's full, the
+ * least recently used entries are evicted. A value that isn't in the cache is
+ * recomputed when it's asked for. The cache may be used from many threads at
+ * once.
+ *
+ * @author Dov Neimand
+ * @param <K> the type of key
+ * @param <V> the type of value
+ */
+public class BoundedCache<K, V> {
+
+    /**
+     * The default capacity, 64 MB.
+     */
+    public static final long DEFAULT_BYTES = 64L << 20;
+
+    /**
+     * The entries from least to most recently used, with their weights.
+     */
+    private final LinkedHashMap<K, Weighed<V>> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final long maxBytes;
+
+    /**
+     * An estimate of the number of bytes used by each value.
+     */
+    private final ToLongFunction<? super V> weigher;
+
+    private long bytes = 0;
+
+    private final LongAdder hits = new LongAdder(), misses = new LongAdder(), evictions = new LongAdder();
+
+    /**
+     * A value and its weight, which is saved so that it's the same when the
+     * value is evicted as when it was added.
+     */
+    private static class Weighed<V> {
+
+        final V value;
+        final long bytes;
+
+        Weighed(V value, long bytes) {
+            this.value = value;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * The constructor
+     *
+     * @param maxBytes the most bytes the values may use together.
+     * @param weigher an estimate of the number of bytes used by a value.
+     */
+    public BoundedCache(long maxBytes, ToLongFunction<? super V> weigher) {
+        this.maxBytes = maxBytes;
+        this.weigher = weigher;
+    }
+
+    /**
+     * The value for the key. If it's not in the cache it is computed and
+     * added. The computation is done outside of the lock, so two threads
+     * may compute the same value, in which case the first one added is kept.
+     *
+     * @param key
+     * @param compute computes the value if it's not in the cache.
+     * @return
+     */
+    public V get(K key, Function<? super K, ? extends V> compute) {
+        V value = getIfPresent(key);
+        if (value != null) return value;
+        return putIfAbsent(key, compute.apply(key));
+    }
+
+    /**
+     * The value for the key, if it's in the cache.
+     *
+     * @param key
+     * @return null if the key is not in the cache.
+     */
+    public V getIfPresent(K key) {
+        Weighed<V> w;
+        synchronized (this) {
+            w = entries.get(key);
+        }
+        if (w == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return w.value;
+    }
+
+    /**
+     * Adds the value if there is no value for the key.
+     *
+     * @param key
+     * @param value
+     * @return the value in the cache for the key.
+     */
+    public synchronized V putIfAbsent(K key, V value) {
+        Weighed<V> w = entries.get(key);
+        if (w != null) return w.value;
+        w = new Weighed<>(value, weigher.applyAsLong(value));
+        entries.put(key, w);
+        bytes += w.bytes;
+        evict();
+        return value;
+    }
+
+    /**
+     * Removes least recently used entries until the cache fits. The entry
+     * most recently added is kept even if it alone is too big.
+     */
+    private void evict() {
+        Iterator<Weighed<V>> it = entries.values().iterator();
+        while (bytes > maxBytes && entries.size() > 1) {
+            bytes -= it.next().bytes;
+            it.remove();
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Removes the key from the cache.
+     *
+     * @param key
+     */
+    public synchronized void invalidate(K key) {
+        Weighed<V> w = entries.remove(key);
+        if (w != null) bytes -= w.bytes;
+    }
+
+    /**
+     * Removes everything from the cache.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    /**
+     * A copy of the keys in the cache.
+     *
+     * @return
+     */
+    public synchronized List<K> keys() {
+        return new ArrayList<>(entries.keySet());
+    }
+
+    /**
+     * The number of entries in the cache.
+     *
+     * @return
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * The estimated bytes used by the values in the cache.
+     *
+     * @return
+     */
+    public synchronized long bytes() {
+        return bytes;
+    }
+
+    public long maxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * The number of times a key was found.
+     *
+     * @return
+     */
+    public long hits() {
+        return hits.sum();
+    }
+
+    /**
+     * The number of times a key was not found.
+     *
+     * @return
+     */
+    public long misses() {
+        return misses.sum();
+    }
+
+    /**
+     * The number of entries evicted to make room for others.
+     *
+     * @return
+     */
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public String toString() {
+        return size() + " entries, " + bytes() + "/" + maxBytes + " bytes, "
+                + hits() + " hits, " + misses() + " misses, "
+                + evictions() + " evictions";
+    }
+}
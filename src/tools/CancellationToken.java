@@ -0,0 +1,67 @@
+package tools;
+
+/**
+ * Shared by the workers of a parallel search. The first worker to find the
+ * answer cancels the token with it, and the others stop the next time they
+ * check the token.
+ *
+ * @author Dov Neimand
+ * @param <T> the type of answer
+ */
+public class CancellationToken<T> {
+
+    private volatile boolean cancelled = false;
+
+    private volatile T result;
+
+    /**
+     * Cancels the search.
+     *
+     * @param result the answer that was found. If the search has already been
+     * cancelled, the first answer is kept.
+     */
+    public synchronized void cancel(T result) {
+        if (cancelled) return;
+        this.result = result;
+        cancelled = true;
+    }
+
+    /**
+     * Has the search been cancelled?
+     *
+     * @return
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * The answer the search was cancelled with.
+     *
+     * @return null if the search hasn't been cancelled.
+     */
+    public T result() {
+        return result;
+    }
+
+    /**
+     * Stops the calling worker if the search has been cancelled.
+     *
+     * @throws Cancelled if the search has been cancelled.
+     */
+    public void throwIfCancelled() {
+        if (cancelled) throw new Cancelled();
+    }
+
+    /**
+     * Thrown by workers that stop because the search was cancelled. The
+     * stack trace is not filled in, since this is thrown often and is not an
+     * error.
+     */
+    public static class Cancelled extends RuntimeException {
+
+        public Cancelled() {
+            super("The search was cancelled.", null, false, false);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package tools;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The subsets of size k of {0, ..., n-1}, as sorted int arrays in
+ * lexicographic order. Each subset has a rank, its place in that order, and
+ * the spliterator splits by rank, unranking the first subset of each half, so
+ * parallel streams of combinations balance without building any lists.
+ *
+ * The same array is passed to the consumer for every subset. Copy it to keep
+ * it.
+ *
+ * @author Dov Neimand
+ */
+public class CombinationSpliterator implements Spliterator<int[]> {
+
+    /**
+     * Ranges with fewer subsets than this are not split.
+     */
+    private static final long MIN_SPLIT = 1 << 6;
+
+    private final int n, k;
+
+    /**
+     * The rank of the next subset and one past the rank of the last.
+     */
+    private long rank, end;
+
+    /**
+     * The next subset, or null if it hasn't been unranked yet.
+     */
+    private int[] comb;
+
+    /**
+     * The constructor
+     *
+     * @param n the size of the set being chosen from.
+     * @param k the size of the subsets.
+     * @throws ArithmeticException if there are more than Long.MAX_VALUE
+     * subsets.
+     */
+    public CombinationSpliterator(int n, int k) {
+        this(n, k, 0, Combinatorics.choose(n, k));
+        if (end == Long.MAX_VALUE)
+            throw new ArithmeticException(n + " choose " + k + " is too large.");
+    }
+
+    private CombinationSpliterator(int n, int k, long rank, long end) {
+        this.n = n;
+        this.k = k;
+        this.rank = rank;
+        this.end = end;
+    }
+
+    /**
+     * The subset with the given rank.
+     *
+     * @param rank
+     * @return
+     */
+    private int[] unrank(long rank) {
+        int[] c = new int[k];
+        for (int i = 0, x = 0; i < k; i++, x++) {
+            long count;
+            while (rank >= (count = Combinatorics.choose(n - x - 1, k - i - 1))) {
+                rank -= count;
+                x++;
+            }
+            c[i] = x;
+        }
+        return c;
+    }
+
+    /**
+     * Moves comb to the next subset in lexicographic order.
+     */
+    private void increment() {
+        int i = k - 1;
+        while (i >= 0 && comb[i] == n - k + i) i--;
+        if (i < 0) return;
+        comb[i]++;
+        for (int j = i + 1; j < k; j++) comb[j] = comb[j - 1] + 1;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super int[]> action) {
+        if (rank >= end) return false;
+        if (comb == null) comb = unrank(rank);
+        else increment();
+        rank++;
+        action.accept(comb);
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super int[]> action) {
+        while (tryAdvance(action));
+    }
+
+    @Override
+    public Spliterator<int[]> trySplit() {
+        if (end - rank < MIN_SPLIT) return null;
+        long mid = rank + (end - rank) / 2;
+        CombinationSpliterator prefix = new CombinationSpliterator(n, k, rank, mid);
+        if (comb != null) {
+            prefix.comb = comb;
+            comb = null;
+        }
+        rank = mid;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return end - rank;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SIZED | SUBSIZED | NONNULL;
+    }
+
+    /**
+     * A stream of the subsets of size k of {0, ..., n-1}. The same array is
+     * passed down the stream for every subset of a thread.
+     *
+     * @param n
+     * @param k
+     * @param parallel
+     * @return
+     */
+    public static Stream<int[]> stream(int n, int k, boolean parallel) {
+        return StreamSupport.stream(new CombinationSpliterator(n, k), parallel);
+    }
+}
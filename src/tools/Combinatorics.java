@@ -2,13 +2,10 @@ package tools;
 
 import java.io.PrintStream;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 /**
@@ -34,36 +31,20 @@ public class Combinatorics {
     }
 
     /**
-     * takes in a an n choose k -1 list and returns and n choose k list
-     * @param chooseList a list of all the elements in n choose k - 1
-     * @param n the total number of integers being chosen from
-     * @param remaining how many more times will this method be called recursively
-     * @return a new list of all the n choose k combinatons.
-     */
-    private static Stream<List<Integer>> nextChoose(Stream<List<Integer>> chooseList, int n, int remaining) {
-
-        return chooseList.flatMap(list -> IntStream
-                .range(list.get(list.size() - 1) + 1, n + 1 - remaining).mapToObj(i -> add(list, i))
-        );
-    }
-
-    /**
-     * All the sets of n choose k combinations of integers.
+     * All the sets of n choose k combinations of integers. Callers that can
+     * use int arrays should use {@link CombinationSpliterator} directly, which
+     * doesn't box the integers or build a list for each set.
      *
      * @param n the highest ineteger in the set + 1
      * @param k the size of the subsets chosen
      * @return a stream of all the sets of integers of the given size.
      */
     public static Stream<List<Integer>> chooseIntegers(int n, int k) {
-        if (k == 0) return Stream.of(new ArrayList<>());
-
-        Stream<List<Integer>> chooseList
-                = IntStream.range(0, n + 1 - k).mapToObj(i -> Arrays.asList(i)).parallel();
-
-        for (int i = 1; i < k; i++)
-            chooseList = nextChoose(chooseList, n, k - i);
-
-        return chooseList;
+        return CombinationSpliterator.stream(n, k, true).map(comb -> {
+            ArrayList<Integer> list = new ArrayList<>(k);
+            for (int i : comb) list.add(i);
+            return list;
+        });
     }
 
     /**
@@ -74,10 +55,11 @@ public class Combinatorics {
      * @return all the sublists of the given list of size k.
      */
     public static <T> Stream<List<T>> choose(List<T> chooseFrom, int k) {
-        return chooseIntegers(chooseFrom.size(), k).map(intList
-                -> intList.stream()
-                        .map(i -> chooseFrom.get(i))
-                        .collect(Collectors.toList()));
+        return CombinationSpliterator.stream(chooseFrom.size(), k, true).map(comb -> {
+            ArrayList<T> list = new ArrayList<>(k);
+            for (int i : comb) list.add(chooseFrom.get(i));
+            return list;
+        });
     }
 
     
@@ -103,9 +85,15 @@ public class Combinatorics {
      * @param k
      * @return
      */
-    public static int choose(int n, int k) {
-        if (k == 0) return 1;
-        return choose(n - 1, k - 1) * n / k;
+    public static long choose(int n, int k) {
+        if (k < 0 || k > n) return 0;
+        k = Math.min(k, n - k);
+        long choose = 1;
+        for (int i = 1; i <= k; i++) {
+            if (choose > Long.MAX_VALUE / (n - k + i)) return Long.MAX_VALUE;
+            choose = choose * (n - k + i) / i;
+        }
+        return choose;
     }
 
     /**
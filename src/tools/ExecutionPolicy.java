@@ -0,0 +1,158 @@
+package tools;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+import java.util.stream.BaseStream;
+
+/**
+ * Decides whether the streams of the CoupRliec algorithms run in parallel,
+ * and on which pool. Small streams cost more to fork and join than to run, so
+ * the adaptive policy only goes parallel when the estimated work is above a
+ * threshold.
+ *
+ * @author Dov Neimand
+ */
+public class ExecutionPolicy {
+
+    /**
+     * How the policy decides to run a stream in parallel.
+     */
+    public enum Mode {
+        /**
+         * Every stream is sequential.
+         */
+        SEQUENTIAL,
+        /**
+         * Every stream is parallel.
+         */
+        PARALLEL,
+        /**
+         * A stream is parallel if its estimated work is at least the
+         * threshold.
+         */
+        ADAPTIVE
+    }
+
+    /**
+     * The work, roughly the number of floating point operations, at which the
+     * adaptive policy starts running streams in parallel.
+     */
+    public static final long DEFAULT_THRESHOLD = 1 << 15;
+
+    public static final ExecutionPolicy SEQUENTIAL = new ExecutionPolicy(Mode.SEQUENTIAL, DEFAULT_THRESHOLD, null),
+            PARALLEL = new ExecutionPolicy(Mode.PARALLEL, DEFAULT_THRESHOLD, null),
+            ADAPTIVE = new ExecutionPolicy(Mode.ADAPTIVE, DEFAULT_THRESHOLD, null);
+
+    private final Mode mode;
+
+    /**
+     * The work at which the adaptive policy goes parallel.
+     */
+    private final long threshold;
+
+    /**
+     * The pool parallel streams run on, or null for the common pool.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * The constructor
+     *
+     * @param mode how to decide if a stream is parallel.
+     * @param threshold the estimated work at which the adaptive mode goes
+     * parallel.
+     * @param pool the pool parallel streams run on, null for the common pool.
+     */
+    public ExecutionPolicy(Mode mode, long threshold, ForkJoinPool pool) {
+        this.mode = mode;
+        this.threshold = threshold;
+        this.pool = pool;
+    }
+
+    /**
+     * This policy, but running parallel streams on the given pool.
+     *
+     * @param pool a dedicated pool, or null for the common pool.
+     * @return
+     */
+    public ExecutionPolicy withPool(ForkJoinPool pool) {
+        return new ExecutionPolicy(mode, threshold, pool);
+    }
+
+    /**
+     * This policy with a different threshold for the adaptive mode.
+     *
+     * @param threshold
+     * @return
+     */
+    public ExecutionPolicy withThreshold(long threshold) {
+        return new ExecutionPolicy(mode, threshold, pool);
+    }
+
+    /**
+     * Should work of the given size be done in parallel?
+     *
+     * @param work an estimate of the work, e.g. faces * dim.
+     * @return
+     */
+    public boolean parallel(long work) {
+        switch (mode) {
+            case SEQUENTIAL: return false;
+            case PARALLEL: return true;
+            default: return work >= threshold;
+        }
+    }
+
+    /**
+     * Makes the stream parallel or sequential.
+     *
+     * @param <T> the type of element in the stream.
+     * @param <S> the type of stream.
+     * @param stream
+     * @param work an estimate of the work the stream will do.
+     * @return the stream, parallel or sequential.
+     */
+    public <T, S extends BaseStream<T, S>> S apply(S stream, long work) {
+        return parallel(work) ? stream.parallel() : stream.sequential();
+    }
+
+    /**
+     * Runs the task so that the parallel streams in it use this policy's pool.
+     * If there is no dedicated pool, or the caller is already running in it,
+     * the task is run on the calling thread.
+     *
+     * @param <T>
+     * @param task
+     * @return the result of the task.
+     */
+    public <T> T run(Supplier<T> task) {
+        if (pool == null || mode == Mode.SEQUENTIAL
+                || (ForkJoinTask.inForkJoinPool() && ForkJoinTask.getPool() == pool))
+            return task.get();
+        return pool.submit(task::get).join();
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public long getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * The pool parallel streams run on.
+     *
+     * @return null if they run on the common pool.
+     */
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    @Override
+    public String toString() {
+        return mode + (mode == Mode.ADAPTIVE ? " at " + threshold : "")
+                + (pool == null ? "" : " on " + pool);
+    }
+}
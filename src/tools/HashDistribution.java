@@ -0,0 +1,132 @@
+package tools;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * How the keys of a hash map are spread over its buckets. The buckets are
+ * found the same way a HashMap finds them, so this shows how long the chains
+ * a lookup has to walk are.
+ *
+ * @author Dov Neimand
+ */
+public class HashDistribution {
+
+    private final int keys, buckets, occupiedBuckets, longestChain, distinctHashes;
+
+    /**
+     * The constructor
+     *
+     * @param keys the keys in the map.
+     * @param initialCapacity the capacity the map was created with.
+     */
+    public HashDistribution(Collection<?> keys, int initialCapacity) {
+        this.keys = keys.size();
+
+        int capacity = Integer.highestOneBit(Math.max(initialCapacity - 1, 1)) << 1;
+        while (capacity < (1 << 30) && this.keys > capacity * 3 / 4) capacity <<= 1;
+        buckets = capacity;
+
+        int[] chains = new int[capacity];
+        Set<Integer> hashes = new HashSet<>(keys.size());
+        int occupied = 0, longest = 0;
+        for (Object key : keys) {
+            int h = key.hashCode();
+            hashes.add(h);
+            int bucket = (h ^ (h >>> 16)) & (capacity - 1);
+            if (chains[bucket]++ == 0) occupied++;
+            longest = Math.max(longest, chains[bucket]);
+        }
+        occupiedBuckets = occupied;
+        longestChain = longest;
+        distinctHashes = hashes.size();
+    }
+
+    /**
+     * The distribution of the keys of a map created with the default
+     * capacity.
+     *
+     * @param keys
+     */
+    public HashDistribution(Collection<?> keys) {
+        this(keys, 16);
+    }
+
+    /**
+     * The distribution of the keys of a ConcurrentHashMap. A
+     * ConcurrentHashMap sizes its table for initialCapacity / 0.75 + 1 keys,
+     * so it starts with more buckets than a HashMap of the same capacity.
+     *
+     * @param keys the keys in the map.
+     * @param initialCapacity the capacity the map was created with.
+     * @return
+     */
+    public static HashDistribution ofConcurrent(Collection<?> keys, int initialCapacity) {
+        long size = (long) (1.0 + (long) initialCapacity / 0.75f);
+        return new HashDistribution(keys, (int) Math.min(size, 1 << 30));
+    }
+
+    /**
+     * The number of keys.
+     *
+     * @return
+     */
+    public int keys() {
+        return keys;
+    }
+
+    /**
+     * The number of buckets in the map's table.
+     *
+     * @return
+     */
+    public int buckets() {
+        return buckets;
+    }
+
+    /**
+     * The number of buckets with at least one key.
+     *
+     * @return
+     */
+    public int occupiedBuckets() {
+        return occupiedBuckets;
+    }
+
+    /**
+     * The number of keys that share a bucket with a key before them.
+     *
+     * @return
+     */
+    public int collisions() {
+        return keys - occupiedBuckets;
+    }
+
+    /**
+     * The number of keys whose hash code equals the hash code of another key.
+     * These collide no matter how big the table is.
+     *
+     * @return
+     */
+    public int hashCollisions() {
+        return keys - distinctHashes;
+    }
+
+    /**
+     * The most keys in any one bucket.
+     *
+     * @return
+     */
+    public int longestChain() {
+        return longestChain;
+    }
+
+    @Override
+    public String toString() {
+        return keys + " keys in " + occupiedBuckets + "/" + buckets
+                + " buckets, " + collisions() + " collisions ("
+                + hashCollisions() + " equal hash codes), longest chain "
+                + longestChain;
+    }
+}
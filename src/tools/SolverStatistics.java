@@ -0,0 +1,412 @@
+package tools;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts what the CoupRliec algorithms do while they search for a minimum.
+ * The counters may be incremented from many threads at once.
+ *
+ * @author Dov Neimand
+ */
+public class SolverStatistics {
+
+    /**
+     * The number of affine spaces, or P-cones, generated at each codimension.
+     */
+    private final LongAdder[] affineSpacesGenerated;
+
+    /**
+     * The time, in nanoseconds, spent on each codimension.
+     */
+    private final LongAdder[] levelNanos;
+
+    /**
+     * The number of P-cones that met the necessary criteria, so that the
+     * minimum over their affine space was computed.
+     */
+    private final LongAdder necessaryCriteriaHits = new LongAdder();
+
+    /**
+     * The number of P-cones whose minimum was taken from a supercone, so that
+     * the minimum over their affine space did not need to be computed.
+     */
+    private final LongAdder earlyExits = new LongAdder();
+
+    /**
+     * The number of times a possible minimum was checked to see if it's in
+     * the polyhedron.
+     */
+    private final LongAdder sufficientCriteriaChecks = new LongAdder();
+
+    /**
+     * The number of times a supercone was looked up and found.
+     */
+    private final LongAdder cacheHits = new LongAdder();
+
+    /**
+     * The number of times a supercone was looked up and had to be generated.
+     */
+    private final LongAdder cacheMisses = new LongAdder();
+
+    /**
+     * The codimension of the P-cone the minimum was found on, or -1 if it
+     * hasn't been found.
+     */
+    private volatile int solvedAtCoDim = -1;
+
+    /**
+     * Was the minimum found from the active set of a previous solution?
+     */
+    private volatile boolean solvedByWarmStart = false;
+
+    /**
+     * The number of redundant half spaces removed from the polyhedron before
+     * the search.
+     */
+    private volatile int facesPruned = 0;
+
+    /**
+     * The number of half spaces left out of the search because their
+     * boundaries are farther than a point known to be in the polyhedron.
+     */
+    private volatile int facesPrunedByDistance = 0;
+
+    /**
+     * How the keys of the maps holding the P-cones at each codimension are
+     * spread over their buckets. These are only gathered if
+     * trackHashDistribution is set.
+     */
+    private final HashDistribution[] hashDistributions;
+
+    /**
+     * Should the algorithm record how the keys of its maps are distributed?
+     */
+    private volatile boolean trackHashDistribution = false;
+
+    /**
+     * The constructor
+     *
+     * @param maxCoDim the highest codimension the algorithm might search.
+     */
+    public SolverStatistics(int maxCoDim) {
+        affineSpacesGenerated = new LongAdder[maxCoDim + 1];
+        levelNanos = new LongAdder[maxCoDim + 1];
+        hashDistributions = new HashDistribution[maxCoDim + 1];
+        Arrays.setAll(affineSpacesGenerated, i -> new LongAdder());
+        Arrays.setAll(levelNanos, i -> new LongAdder());
+    }
+
+    /**
+     * The highest codimension tracked.
+     *
+     * @return
+     */
+    public int maxCoDim() {
+        return affineSpacesGenerated.length - 1;
+    }
+
+    /**
+     * Is the given codimension tracked?
+     *
+     * @param coDim
+     * @return
+     */
+    private boolean tracks(int coDim) {
+        return coDim >= 0 && coDim < affineSpacesGenerated.length;
+    }
+
+    /**
+     * Call this each time a P-cone is generated.
+     *
+     * @param coDim the number of half spaces in the P-cone.
+     */
+    public void affineSpaceGenerated(int coDim) {
+        if (tracks(coDim)) affineSpacesGenerated[coDim].increment();
+    }
+
+    /**
+     * Call this each time a P-cone meets the necessary criteria.
+     */
+    public void necessaryCriteriaHit() {
+        necessaryCriteriaHits.increment();
+    }
+
+    /**
+     * Call this each time a P-cone fails the necessary criteria.
+     */
+    public void earlyExit() {
+        earlyExits.increment();
+    }
+
+    /**
+     * Call this each time a possible minimum is checked for membership in the
+     * polyhedron.
+     */
+    public void sufficientCriteriaCheck() {
+        sufficientCriteriaChecks.increment();
+    }
+
+    /**
+     * Call this each time a supercone is found among those already computed.
+     */
+    public void cacheHit() {
+        cacheHits.increment();
+    }
+
+    /**
+     * Call this each time a supercone is not found among those already
+     * computed.
+     */
+    public void cacheMiss() {
+        cacheMisses.increment();
+    }
+
+    /**
+     * Adds time spent on a codimension.
+     *
+     * @param coDim the codimension
+     * @param nanos the time spent in nanoseconds.
+     */
+    public void levelTime(int coDim, long nanos) {
+        if (tracks(coDim)) levelNanos[coDim].add(nanos);
+    }
+
+    /**
+     * Records the codimension of the P-cone the minimum was found on.
+     *
+     * @param coDim
+     */
+    public void solvedAt(int coDim) {
+        solvedAtCoDim = coDim;
+    }
+
+    /**
+     * Records the number of redundant half spaces removed from the polyhedron
+     * before the search.
+     *
+     * @param facesPruned
+     */
+    public void setFacesPruned(int facesPruned) {
+        this.facesPruned = facesPruned;
+    }
+
+    /**
+     * The number of redundant half spaces removed from the polyhedron before
+     * the search.
+     *
+     * @return
+     */
+    public int facesPruned() {
+        return facesPruned;
+    }
+
+    /**
+     * Records the number of half spaces left out of the search because their
+     * boundaries are farther than a point known to be in the polyhedron.
+     *
+     * @param facesPrunedByDistance
+     */
+    public void setFacesPrunedByDistance(int facesPrunedByDistance) {
+        this.facesPrunedByDistance = facesPrunedByDistance;
+    }
+
+    /**
+     * The number of half spaces left out of the search because their
+     * boundaries are farther than a point known to be in the polyhedron.
+     *
+     * @return
+     */
+    public int facesPrunedByDistance() {
+        return facesPrunedByDistance;
+    }
+
+    /**
+     * Records that the minimum was found from the active set of a previous
+     * solution, without the full search.
+     */
+    public void solvedByWarmStart() {
+        solvedByWarmStart = true;
+    }
+
+    /**
+     * Sets whether the algorithm should record how the keys of its maps are
+     * distributed over their buckets. This is for debugging, and costs a pass
+     * over the keys of each map.
+     *
+     * @param trackHashDistribution
+     * @return this
+     */
+    public SolverStatistics setTrackHashDistribution(boolean trackHashDistribution) {
+        this.trackHashDistribution = trackHashDistribution;
+        return this;
+    }
+
+    /**
+     * Is the algorithm recording how the keys of its maps are distributed?
+     *
+     * @return
+     */
+    public boolean tracksHashDistribution() {
+        return trackHashDistribution;
+    }
+
+    /**
+     * Records how the keys of the map of P-cones at a codimension are
+     * distributed.
+     *
+     * @param coDim
+     * @param distribution
+     */
+    public void hashDistribution(int coDim, HashDistribution distribution) {
+        if (tracks(coDim)) hashDistributions[coDim] = distribution;
+    }
+
+    /**
+     * How the keys of the map of P-cones at a codimension are distributed.
+     *
+     * @param coDim
+     * @return null if it wasn't recorded.
+     */
+    public HashDistribution hashDistribution(int coDim) {
+        return tracks(coDim) ? hashDistributions[coDim] : null;
+    }
+
+    /**
+     * Adds the counts of another run, as when one algorithm hands the problem
+     * off to another.
+     *
+     * @param other
+     */
+    public void add(SolverStatistics other) {
+        for (int i = 0; i <= Math.min(maxCoDim(), other.maxCoDim()); i++) {
+            affineSpacesGenerated[i].add(other.affineSpacesGenerated(i));
+            levelNanos[i].add(other.levelNanos[i].sum());
+            if (other.hashDistributions[i] != null)
+                hashDistributions[i] = other.hashDistributions[i];
+        }
+        necessaryCriteriaHits.add(other.necessaryCriteriaHits());
+        earlyExits.add(other.earlyExits());
+        sufficientCriteriaChecks.add(other.sufficientCriteriaChecks());
+        cacheHits.add(other.cacheHits());
+        cacheMisses.add(other.cacheMisses());
+        if (other.solvedAtCoDim != -1) solvedAtCoDim = other.solvedAtCoDim;
+        if (other.solvedByWarmStart) solvedByWarmStart = true;
+        facesPruned = Math.max(facesPruned, other.facesPruned);
+        facesPrunedByDistance = Math.max(facesPrunedByDistance, other.facesPrunedByDistance);
+    }
+
+    /**
+     * The number of P-cones generated at the given codimension.
+     *
+     * @param coDim
+     * @return
+     */
+    public long affineSpacesGenerated(int coDim) {
+        return tracks(coDim) ? affineSpacesGenerated[coDim].sum() : 0;
+    }
+
+    /**
+     * The number of P-cones generated at all codimensions.
+     *
+     * @return
+     */
+    public long affineSpacesGenerated() {
+        return Arrays.stream(affineSpacesGenerated).mapToLong(LongAdder::sum).sum();
+    }
+
+    /**
+     * The number of P-cones that met the necessary criteria.
+     *
+     * @return
+     */
+    public long necessaryCriteriaHits() {
+        return necessaryCriteriaHits.sum();
+    }
+
+    /**
+     * The number of P-cones that took their minimum from a supercone.
+     *
+     * @return
+     */
+    public long earlyExits() {
+        return earlyExits.sum();
+    }
+
+    /**
+     * The number of possible minimums checked for membership in the
+     * polyhedron.
+     *
+     * @return
+     */
+    public long sufficientCriteriaChecks() {
+        return sufficientCriteriaChecks.sum();
+    }
+
+    /**
+     * The number of supercones found among those already computed.
+     *
+     * @return
+     */
+    public long cacheHits() {
+        return cacheHits.sum();
+    }
+
+    /**
+     * The number of supercones that were not found among those already
+     * computed.
+     *
+     * @return
+     */
+    public long cacheMisses() {
+        return cacheMisses.sum();
+    }
+
+    /**
+     * The time spent on the given codimension in milliseconds.
+     *
+     * @param coDim
+     * @return
+     */
+    public double levelMillis(int coDim) {
+        return tracks(coDim) ? levelNanos[coDim].sum() / 1e6 : 0;
+    }
+
+    /**
+     * The codimension of the P-cone the minimum was found on.
+     *
+     * @return -1 if no minimum was found.
+     */
+    public int solvedAtCoDim() {
+        return solvedAtCoDim;
+    }
+
+    /**
+     * Was the minimum found from the active set of a previous solution?
+     *
+     * @return
+     */
+    public boolean isSolvedByWarmStart() {
+        return solvedByWarmStart;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("solved at codim ").append(solvedAtCoDim)
+                .append(solvedByWarmStart ? " by warm start" : "")
+                .append("\nfaces pruned ").append(facesPruned)
+                .append("\nfaces pruned by distance ").append(facesPrunedByDistance)
+                .append("\nnecessary criteria hits ").append(necessaryCriteriaHits())
+                .append("\nearly exits ").append(earlyExits())
+                .append("\nsufficient criteria checks ").append(sufficientCriteriaChecks())
+                .append("\ncache hits ").append(cacheHits())
+                .append("\ncache misses ").append(cacheMisses());
+        for (int i = 0; i < affineSpacesGenerated.length; i++)
+            sb.append("\ncodim ").append(i)
+                    .append(": ").append(affineSpacesGenerated(i)).append(" generated in ")
+                    .append(levelMillis(i)).append("ms")
+                    .append(hashDistributions[i] == null ? "" : ", " + hashDistributions[i]);
+        return sb.toString();
+    }
+}